@@ -0,0 +1,222 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static loa.Board.MAX_MOVES;
+import static loa.Searcher.*;
+
+/** An open-ended analysis of a position, run in a background thread: a
+ *  search to successively greater depths that reports the best several
+ *  lines of play ("multi-PV") through a Reporter until stopped.
+ *
+ *  Each iteration searches every move from the position.  Until it has
+ *  exact values for the requested number of moves, it searches each with
+ *  the full window.  After that, it first searches a move with a null
+ *  window at the value of the worst of the best lines so far, and again
+ *  with the full window only if the move beats it.  Moves are tried in
+ *  the order of the previous iteration's values.  Each line is the move
+ *  followed by the best moves recorded for the positions after it in
+ *  the transposition table.
+ *
+ *  Reports come at the end of each iteration and also, between moves,
+ *  during one that runs long: at most one every REPORT_INTERVAL, giving
+ *  the lines found so far in the iteration under way.
+ *  @author Devyanshi Agarwal
+ */
+class Analyzer {
+
+    /** Default number of lines reported. */
+    static final int DEFAULT_LINES = 3;
+    /** Least time between reports, in milliseconds. */
+    static final long REPORT_INTERVAL = 1000;
+
+    /** An analyzer reporting to REPORTER, with a transposition table of
+     *  HASHSIZE megabytes, scoring positions with EVALUATOR. */
+    Analyzer(Reporter reporter, int hashSize, Evaluator evaluator) {
+        _reporter = reporter;
+        _table = new TranspositionTable(hashSize);
+        _searcher = new Searcher(_table, evaluator);
+    }
+
+    /** Start analyzing POSITION (which is copied) in a background thread,
+     *  reporting the best LINES lines, after stopping any analysis under
+     *  way.  POSITION must not be a finished game. */
+    void start(Board position, int lines) {
+        stop();
+        _board.copyFrom(position);
+        _lines = Math.max(1, lines);
+        _stopped = false;
+        _searcher.setPosition(position);
+        _thread = new Thread(this::analyze);
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    /** Stop any analysis under way, and wait for it to finish. */
+    void stop() {
+        if (_thread == null) {
+            return;
+        }
+        _stopped = true;
+        _searcher.stop();
+        try {
+            _thread.join();
+        } catch (InterruptedException excp) {
+            /* Ignore InterruptedException; the thread is a daemon. */
+        }
+        _thread = null;
+    }
+
+    /** Search _board to successively greater depths until stopped or
+     *  until the best line is a forced win or loss, reporting as
+     *  described above. */
+    private void analyze() {
+        int[] moves = new int[MAX_MOVES];
+        int[] values = new int[MAX_MOVES];
+        int n = _board.generateMoves(moves);
+        if (n == 0) {
+            return;
+        }
+        long start = System.currentTimeMillis(), lastReport = start;
+        long nodes = 0;
+        _table.newSearch();
+        for (int depth = 1; depth <= MAX_DEPTH && !_stopped; depth += 1) {
+            int exact = 0, threshold = -INFTY;
+            for (int i = 0; i < n && !_stopped; i += 1) {
+                _board.makeMove(moves[i]);
+                int value;
+                if (exact < _lines) {
+                    value = -subtree(depth, -INFTY, INFTY);
+                    exact += 1;
+                } else {
+                    value = -subtree(depth, -threshold - 1, -threshold);
+                    if (value > threshold && !_stopped) {
+                        value = -subtree(depth, -INFTY, INFTY);
+                    }
+                }
+                nodes += _searcher.nodes();
+                _board.retract();
+                insert(moves, values, i, value);
+                threshold = values[Math.min(exact, _lines) - 1];
+                long now = System.currentTimeMillis();
+                if (i + 1 < n && !_stopped
+                    && now - lastReport >= REPORT_INTERVAL) {
+                    report(depth, i + 1, n, moves, values,
+                           Math.min(exact, _lines), nodes, now - start);
+                    lastReport = now;
+                }
+            }
+            if (_stopped) {
+                break;
+            }
+            long now = System.currentTimeMillis();
+            boolean decided = isWin(values[0]) || isWin(-values[0]);
+            if (now - lastReport >= REPORT_INTERVAL || decided) {
+                report(depth, n, n, moves, values, Math.min(n, _lines),
+                       nodes, now - start);
+                lastReport = now;
+            }
+            if (decided) {
+                break;
+            }
+        }
+    }
+
+    /** Return the value of the current position of _board, one ply from
+     *  the root, searched to DEPTH-1 with the window (ALPHA, BETA). */
+    private int subtree(int depth, int alpha, int beta) {
+        return _searcher.searchSubtree(_board, 1, depth - 1, alpha, beta,
+                                       Long.MAX_VALUE);
+    }
+
+    /** Move MOVES[I], whose value is VALUE, ahead of the moves in
+     *  MOVES[0 .. I-1] with lower values, keeping VALUES in step. */
+    private static void insert(int[] moves, int[] values, int i,
+                               int value) {
+        int move = moves[i];
+        int k;
+        for (k = i; k > 0 && values[k - 1] < value; k -= 1) {
+            moves[k] = moves[k - 1];
+            values[k] = values[k - 1];
+        }
+        moves[k] = move;
+        values[k] = value;
+    }
+
+    /** Report the first N of MOVES, whose values are in VALUES, with the
+     *  lines that follow them, as found at DEPTH after searching SEARCHED
+     *  of the TOTAL moves from the position, having visited NODES nodes
+     *  in MILLIS milliseconds. */
+    private void report(int depth, int searched, int total, int[] moves,
+                        int[] values, int n, long nodes, long millis) {
+        long rate = nodes * Game.MILLISEC / Math.max(1, millis);
+        if (searched < total) {
+            _reporter.reportNote("depth %d (%d of %d moves), %d nodes, "
+                                 + "%d nodes/s", depth, searched, total,
+                                 nodes, rate);
+        } else {
+            _reporter.reportNote("depth %d, %d nodes, %d nodes/s", depth,
+                                 nodes, rate);
+        }
+        for (int i = 0; i < n; i += 1) {
+            StringBuilder line = new StringBuilder();
+            for (Move move : line(moves[i], depth)) {
+                line.append(' ').append(move);
+            }
+            _reporter.reportNote("%d. (%s)%s", i + 1, valueString(values[i]),
+                                 line);
+        }
+    }
+
+    /** Return the line starting with the move with code MOVE from _board,
+     *  followed by up to DEPTH-1 best moves from the transposition table.
+     *  _board is unchanged. */
+    private List<Move> line(int move, int depth) {
+        ArrayList<Move> result = new ArrayList<>();
+        while (move != 0 && result.size() < depth
+               && _board.isLegal(Move.mv(move))) {
+            result.add(Move.mv(move));
+            _board.makeMove(move);
+            if (_board.gameOver()) {
+                break;
+            }
+            move = TranspositionTable.move(
+                _table.probe(_board.zobristKey()));
+        }
+        for (int i = 0; i < result.size(); i += 1) {
+            _board.retract();
+        }
+        return result;
+    }
+
+    /** Return VALUE, a result of search, as text: a win or loss in some
+     *  number of plies is shown as "win N" or "loss N". */
+    private static String valueString(int value) {
+        if (isWin(value)) {
+            return "win " + (WINNING_VALUE - value);
+        } else if (isWin(-value)) {
+            return "loss " + (WINNING_VALUE + value);
+        } else {
+            return Integer.toString(value);
+        }
+    }
+
+    /** Receives my reports. */
+    private final Reporter _reporter;
+    /** Transposition table for my searches, kept between analyses. */
+    private final TranspositionTable _table;
+    /** Does my searches. */
+    private final Searcher _searcher;
+    /** The position analyzed. */
+    private final Board _board = new Board();
+    /** Number of lines to report. */
+    private int _lines;
+    /** The thread doing the analysis, or null if there is none. */
+    private Thread _thread;
+    /** Set to stop the analysis. */
+    private volatile boolean _stopped;
+
+}
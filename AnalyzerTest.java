@@ -0,0 +1,138 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+import static loa.Move.mv;
+import static loa.Searcher.WINNING_VALUE;
+
+/** Tests of the Analyzer class, through the lines it reports.
+ *  @author Devyanshi Agarwal
+ */
+public class AnalyzerTest {
+
+    /** Test that analysis of a position with a single winning move
+     *  reports it first, followed by a worse line, and then ends. */
+    @Test
+    public void testWonPosition() throws InterruptedException {
+        Board board = new Board(ProofNumberSolverTest.WIN_IN_7, WP);
+        board.makeMove(mv("a7-d4"));
+        board.makeMove(mv("b1-d1"));
+        RecordingReporter reporter = new RecordingReporter();
+        Analyzer analyzer = new Analyzer(reporter, 1,
+                                         new WeightedEvaluator());
+        analyzer.start(board, 2);
+        List<String> lines = reporter.awaitLines(2);
+        analyzer.stop();
+        assertEquals("line 1", "(win 1) e7-c5", lines.get(0));
+        assertSorted(lines);
+        assertEquals("reports after a decided result", lines,
+                     reporter.awaitLines(2));
+    }
+
+    /** Test that analysis of an undecided position, which would go on
+     *  indefinitely, reports its lines in order of value and stops
+     *  promptly when asked. */
+    @Test
+    public void testStop() throws InterruptedException {
+        RecordingReporter reporter = new RecordingReporter();
+        Analyzer analyzer = new Analyzer(reporter, 1,
+                                         new WeightedEvaluator());
+        analyzer.start(new Board(), 2);
+        List<String> lines = reporter.awaitLines(2);
+        assertSorted(lines);
+        long start = System.currentTimeMillis();
+        analyzer.stop();
+        assertTrue("slow to stop",
+                   System.currentTimeMillis() - start < STOP_TIME);
+    }
+
+    /** Assert that the values of LINES, as reported, do not increase. */
+    private static void assertSorted(List<String> lines) {
+        for (int i = 1; i < lines.size(); i += 1) {
+            assertTrue("lines out of order: " + lines,
+                       value(lines.get(i - 1)) >= value(lines.get(i)));
+        }
+    }
+
+    /** Return the value given at the start of LINE, as reported. */
+    private static int value(String line) {
+        Matcher value = VALUE.matcher(line);
+        assertTrue("bad line: " + line, value.lookingAt());
+        int n = Integer.parseInt(value.group(2));
+        if (value.group(1) == null) {
+            return n;
+        } else if (value.group(1).equals("win ")) {
+            return WINNING_VALUE - n;
+        } else {
+            return -WINNING_VALUE + n;
+        }
+    }
+
+    /** A Reporter that records the lines of play in its notes. */
+    private static class RecordingReporter implements Reporter {
+
+        @Override
+        public void reportError(String format, Object... args) {
+        }
+
+        @Override
+        public synchronized void reportNote(String format, Object... args) {
+            Matcher line = LINE.matcher(String.format(format, args));
+            if (!line.matches()) {
+                return;
+            }
+            if (line.group(1).equals("1")) {
+                _report = new ArrayList<>();
+                _reports.add(_report);
+            }
+            _report.add(line.group(2));
+            notifyAll();
+        }
+
+        @Override
+        public void reportMove(Move move) {
+        }
+
+        /** Wait until a report of N lines has come, and return the lines
+         *  of the last such report, without their numbers. */
+        synchronized List<String> awaitLines(int n)
+            throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (true) {
+                for (int i = _reports.size() - 1; i >= 0; i -= 1) {
+                    if (_reports.get(i).size() == n) {
+                        return new ArrayList<>(_reports.get(i));
+                    }
+                }
+                long left = deadline - System.currentTimeMillis();
+                assertTrue("no report of " + n + " lines", left > 0);
+                wait(left);
+            }
+        }
+
+        /** The lines of each report so far. */
+        private final List<List<String>> _reports = new ArrayList<>();
+        /** The lines of the latest report. */
+        private List<String> _report;
+    }
+
+    /** A reported line: its number, then its value and moves. */
+    private static final Pattern LINE = Pattern.compile("(\\d+)\\. (.*)");
+    /** The value at the start of a reported line. */
+    private static final Pattern VALUE =
+        Pattern.compile("\\((win |loss )?(-?\\d+)\\)");
+    /** Milliseconds to wait for a report. */
+    private static final long TIMEOUT = 10000;
+    /** Most milliseconds stop may take. */
+    private static final long STOP_TIME = 1000;
+
+}
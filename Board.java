@@ -2,13 +2,11 @@
  * University of California.  All rights reserved. */
 package loa;
 
-import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.Formatter;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Collections;
-import java.util.Map;
+import java.util.Random;
 import java.util.regex.Pattern;
 import static loa.Piece.*;
 import static loa.Square.*;
@@ -21,6 +19,12 @@ class Board {
     /** Default number of moves for each side that results in a draw. */
     static final int DEFAULT_MOVE_LIMIT = 60;
 
+    /** An upper bound on the number of legal moves in any position,
+     *  including those set up by hand: at most one move in each of the
+     *  eight directions for each piece of the side to move, which has at
+     *  most 64 pieces. */
+    static final int MAX_MOVES = 8 * 64;
+
     /** Pattern describing a valid square designator (cr). */
     static final Pattern ROW_COL = Pattern.compile("^[a-h][1-8]$");
 
@@ -58,7 +62,7 @@ class Board {
             }
         }
         _turn = side;
-        _moveLimit = DEFAULT_MOVE_LIMIT;
+        _moveLimit = 2 * DEFAULT_MOVE_LIMIT;
     }
 
     /** Set me to the initial configuration. */
@@ -67,12 +71,9 @@ class Board {
         _winner = null;
         _winnerKnown = false;
         _subsetsInitialized = false;
-        _moveLimit = DEFAULT_MOVE_LIMIT;
+        _moveLimit = 2 * DEFAULT_MOVE_LIMIT;
         _moves.clear();
-        _whiteRegionSizes.clear();
-        _blackRegionSizes.clear();
         _turn = BP;
-        _replaced = new ArrayList<>();
     }
 
     /** Set my state to a copy of BOARD. */
@@ -80,19 +81,22 @@ class Board {
         if (board == this) {
             return;
         }
-        this._turn = board._turn;
-        this._moveLimit = board._moveLimit;
-        this._moves.addAll(board._moves);
-        this._winnerKnown = board._winnerKnown;
-        this._blackRegionSizes.addAll(board._blackRegionSizes);
-        this._whiteRegionSizes.addAll(board._whiteRegionSizes);
-        this._winner = board._winner;
         for (int row = 0; row < BOARD_SIZE; row++) {
             for (int col = 0; col < BOARD_SIZE; col++) {
                 Square newSquare = sq(col, row);
                 set(newSquare, board.get(newSquare));
             }
         }
+        this._turn = board._turn;
+        this._key = board._key;
+        this._moveLimit = board._moveLimit;
+        this._moves.clear();
+        for (int ply = 0; ply < board._moves.size(); ply += 1) {
+            pushUndo().copyFrom(board._undo.get(ply));
+            this._moves.add(board._moves.get(ply));
+        }
+        this._winnerKnown = board._winnerKnown;
+        this._winner = board._winner;
     }
 
     /** Return the contents of the square at SQ. */
@@ -103,10 +107,40 @@ class Board {
     /** Set the square at SQ to V and set the side that is to move next
      *  to NEXT, if NEXT is not null. */
     void set(Square sq, Piece v, Piece next) {
-        _board[sq.index()] = v;
+        set(sq.index(), v, next);
+    }
+
+    /** Set the square with index K to V and set the side that is to move
+     *  next to NEXT, if NEXT is not null. */
+    private void set(int k, Piece v, Piece next) {
+        Piece old = _board[k];
+        if (old != null && old != EMP) {
+            countQuads(old.ordinal(), k, -1);
+            _bits[old.ordinal()] &= ~(1L << k);
+            countQuads(old.ordinal(), k, 1);
+            _key ^= ZOBRIST[old.ordinal()][k];
+            countLines(k, -1);
+            accumulate(old.ordinal(), k, -1);
+            removeFromRegions(old, k);
+        }
+        if (v != EMP) {
+            countQuads(v.ordinal(), k, -1);
+            _bits[v.ordinal()] |= 1L << k;
+            countQuads(v.ordinal(), k, 1);
+            _key ^= ZOBRIST[v.ordinal()][k];
+            countLines(k, 1);
+            accumulate(v.ordinal(), k, 1);
+            addToRegions(v, k);
+        }
+        _board[k] = v;
         if (next != null) {
+            if ((next == WP) != (_turn == WP)) {
+                _key ^= WHITE_TO_MOVE;
+            }
             _turn = next;
         }
+        _winnerKnown = false;
+        _subsetsInitialized = false;
     }
 
     /** Set the square at SQ to V, without modifying the side that
@@ -130,15 +164,19 @@ class Board {
      *  the capturing move. */
     void makeMove(Move move) {
         assert isLegal(move);
-        _moves.add(move);
-        Square from = move.getFrom();
-        Square to = move.getTo();
-        _replaced.add(get(to));
-        set(to, get(from));
+        makeMove(move.code());
+    }
+
+    /** Assuming it is legal, make the move whose code (see Move.code) is
+     *  MOVE, as for makeMove(Move.mv(MOVE)). */
+    void makeMove(int move) {
+        Undo undo = pushUndo();
+        undo.winner = _winner;
+        undo.winnerKnown = _winnerKnown;
+        int from = move >> 6, to = move & 63;
+        _moves.add(Move.mv(move, _board[to] != EMP));
+        set(to, _board[from], null);
         set(from, EMP, _turn.opposite());
-        winner();
-        _winnerKnown = false;
-        _subsetsInitialized = false;
     }
 
     /** Retract (unmake) one move, returning to the state immediately before
@@ -148,14 +186,41 @@ class Board {
             return;
         }
         assert movesMade() > 0;
-        Move lastMove = _moves.get(_moves.size() - 1);
-        _moves.remove(_moves.size() - 1);
+        Move lastMove = _moves.remove(_moves.size() - 1);
+        Undo undo = _undo.get(_moves.size());
         Square from = lastMove.getFrom();
         Square to = lastMove.getTo();
-        set(from, get(to));
-        set(to, _replaced.get(_replaced.size() - 1), _turn.opposite());
-        _replaced.remove(_replaced.size() - 1);
-        _subsetsInitialized = true;
+        Piece moved = get(to);
+        set(from, moved);
+        set(to, lastMove.isCapture() ? moved.opposite() : EMP, moved);
+        _winner = undo.winner;
+        _winnerKnown = undo.winnerKnown;
+    }
+
+    /** Assuming the game is not over, pass the turn to the other side
+     *  without moving (a "null move", used only in searching).  The move
+     *  is not recorded in movesMade() and must be undone by
+     *  retractNullMove before any other move is retracted. */
+    void makeNullMove() {
+        assert !gameOver();
+        _turn = _turn.opposite();
+        _key ^= WHITE_TO_MOVE;
+    }
+
+    /** Undo the last makeNullMove. */
+    void retractNullMove() {
+        _turn = _turn.opposite();
+        _key ^= WHITE_TO_MOVE;
+    }
+
+    /** Return the Undo record for the move about to be made, reusing a
+     *  record left by an earlier retraction if there is one. */
+    private Undo pushUndo() {
+        int ply = _moves.size();
+        if (ply == _undo.size()) {
+            _undo.add(new Undo());
+        }
+        return _undo.get(ply);
     }
 
     /** Return the Piece representing who is next to move. */
@@ -172,21 +237,10 @@ class Board {
         }
         int distance = from.distance(to);
         int dir = from.direction(to);
-        int count = numPieces(dir, from);
-        if (count != distance) {
+        if (numPieces(dir, from) != distance) {
             return false;
         }
-        for (int steps = 1; steps < distance; steps++) {
-            Square next = from.moveDest(dir, steps);
-            if (next != null) {
-                if (this.get(next) == _turn.opposite()) {
-                    return false;
-                }
-            }
-        } if (this.blocked(from, to) && this.get(to) == _turn) {
-            return false;
-        }
-        return true;
+        return !blocked(from.index(), to.index());
     }
 
     /** Return true iff MOVE is legal for the player currently on move.
@@ -200,20 +254,58 @@ class Board {
 
     /** Return a sequence of all legal moves from this position. */
     List<Move> legalMoves() {
-        List<Move> moves = new ArrayList<Move>();
-        for (Square from : ALL_SQUARES) {
-            if (get(from) == this._turn) {
-                for (int dir = 0; dir < 8; dir++) {
-                    int steps = numPieces(dir, from);
-                    Square to = from.moveDest(dir, steps);
-                    Move mv = Move.mv(from, to);
-                    if (this.isLegal(mv)) {
-                        moves.add(mv);
+        int[] codes = new int[MAX_MOVES];
+        int n = generateMoves(codes);
+        List<Move> moves = new ArrayList<Move>(n);
+        for (int i = 0; i < n; i += 1) {
+            moves.add(Move.mv(codes[i]));
+        }
+        return moves;
+    }
+
+    /** Store the codes (see Move.code) of all legal moves from this
+     *  position in MOVES[0 .. N-1], and return N.  MOVES must have room
+     *  for MAX_MOVES codes.  Allocates nothing. */
+    int generateMoves(int[] moves) {
+        return generateMoves(_turn, ~_bits[_turn.ordinal()], moves);
+    }
+
+    /** Store the codes of all legal capturing moves from this position in
+     *  MOVES[0 .. N-1], and return N, as for generateMoves. */
+    int generateCaptures(int[] moves) {
+        return generateMoves(_turn, _bits[_turn.opposite().ordinal()],
+                             moves);
+    }
+
+    /** Return the number of legal moves that SIDE would have if it were
+     *  on move in this position. */
+    int mobility(Piece side) {
+        return generateMoves(side, ~_bits[side.ordinal()], null);
+    }
+
+    /** Return the number of legal moves SIDE would have if on move that
+     *  end on one of the squares in TARGETS, and store their codes in
+     *  MOVES[0 .. N-1] unless MOVES is null.  TARGETS must not include
+     *  squares occupied by SIDE. */
+    private int generateMoves(Piece side, long targets, int[] moves) {
+        int n = 0;
+        long own = _bits[side.ordinal()],
+            opp = _bits[side.opposite().ordinal()];
+        for (long pieces = own; pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            for (int dir = 0; dir < 8; dir++) {
+                int steps = _lineCounts[dir & 3][LINE_INDEX[dir & 3][from]];
+                int to = DESTINATION[dir][from][steps];
+                if (to >= 0 && (targets & (1L << to)) != 0
+                    && (opp & BETWEEN[from][to]) == 0) {
+                    if (moves != null) {
+                        moves[n] = (from << 6) | to;
                     }
+                    n += 1;
                 }
             }
         }
-        return moves;
+        return n;
     }
 
     /** Return true iff the game is over (either player has all his
@@ -224,7 +316,27 @@ class Board {
 
     /** Return true iff SIDE's pieces are continguous. */
     boolean piecesContiguous(Piece side) {
-        return getRegionSizes(side).size() == 1;
+        return _numRegions[side.ordinal()] == 1;
+    }
+
+    /** Return the Euler number of SIDE's pieces: the number of regions
+     *  less the number of holes in them, treating diagonally adjacent
+     *  squares as connected.  It is computed from the numbers of 2x2
+     *  windows (quads, including those hanging off the edge of the board)
+     *  that contain exactly one of the pieces (Q1), exactly three (Q3),
+     *  or two diagonally opposite ones (QD), as (Q1 - Q3 - 2 QD) / 4. */
+    int eulerNumber(Piece side) {
+        int[] quads = _quads[side.ordinal()];
+        return (quads[Q1] - quads[Q3] - 2 * quads[QD]) / 4;
+    }
+
+    /** Return a lower bound on numRegions(SIDE) that follows from the
+     *  Euler number alone: no region can have fewer than zero holes. */
+    int minRegions(Piece side) {
+        if (_bits[side.ordinal()] == 0) {
+            return 0;
+        }
+        return Math.max(1, eulerNumber(side));
     }
 
     /** Return the winning side, if any.  If the game is not over, result is
@@ -253,15 +365,39 @@ class Board {
         return _moves.size();
     }
 
+    /** Return the last move made and not retracted, or null if there is
+     *  none. */
+    Move lastMove() {
+        return _moves.isEmpty() ? null : _moves.get(_moves.size() - 1);
+    }
+
+    /** Return the number of moves (by both sides together) that may still
+     *  be made before the game ends in a tie. */
+    int movesRemaining() {
+        return Math.max(0, _moveLimit - _moves.size());
+    }
+
+    /** Return the Zobrist key of the current position: the exclusive or
+     *  of a fixed random number for each piece on each square and one for
+     *  white being on move.  Equal positions have equal keys, and the key
+     *  is kept up to date by set, makeMove, and retract. */
+    public long zobristKey() {
+        return _key;
+    }
+
     @Override
     public boolean equals(Object obj) {
+        if (!(obj instanceof loa.Board)) {
+            return false;
+        }
         loa.Board b = (loa.Board) obj;
-        return Arrays.deepEquals(_board, b._board) && _turn == b._turn;
+        return _key == b._key && _turn == b._turn
+            && Arrays.equals(_bits, b._bits);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(_board) * 2 + _turn.hashCode();
+        return Long.hashCode(_key);
     }
 
     @Override
@@ -271,7 +407,14 @@ class Board {
         for (int r = BOARD_SIZE - 1; r >= 0; r -= 1) {
             out.format("    ");
             for (int c = 0; c < BOARD_SIZE; c += 1) {
-                out.format("%s ", get(sq(c, r)).abbrev());
+                long bit = 1L << sq(c, r).index();
+                if ((_bits[BP.ordinal()] & bit) != 0) {
+                    out.format("%s ", BP.abbrev());
+                } else if ((_bits[WP.ordinal()] & bit) != 0) {
+                    out.format("%s ", WP.abbrev());
+                } else {
+                    out.format("%s ", EMP.abbrev());
+                }
             }
             out.format("%n");
         }
@@ -279,109 +422,233 @@ class Board {
         return out.toString();
     }
 
-    /** Return true if a move from FROM to TO is blocked by an opposing
-     *  piece or by a friendly piece on the target square. */
-    private boolean blocked(Square from, Square to) {
-        if (get(to) == get(from)) {
-            return true;
-        }
-        int dir = from.direction(to);
-        int steps = numPieces(dir, from);
-        for (int i = 1; i < steps; i++) {
-            Square sq = from.moveDest(dir, 1);
-            if (sq != null && get(sq) == get(from).opposite()) {
-                return true;
+    /** Return the set of all occupied squares, as a mask in which bit
+     *  S.index() is set iff square S holds a piece. */
+    long occupied() {
+        return _bits[BP.ordinal()] | _bits[WP.ordinal()];
+    }
+
+    /** Return the mask of squares holding SIDE's pieces. */
+    long pieces(Piece side) {
+        return _bits[side.ordinal()];
+    }
+
+    /** Return true if a move from square index FROM to square index TO by
+     *  the piece on FROM is blocked by an opposing piece along the way or
+     *  by a friendly piece on the target square. */
+    private boolean blocked(int from, int to) {
+        Piece mover = _board[from];
+        long own = _bits[mover.ordinal()],
+            opp = _bits[mover.opposite().ordinal()];
+        return (own & (1L << to)) != 0 || (opp & BETWEEN[from][to]) != 0;
+    }
+
+    /** Return the set of squares in PIECES that are connected to the
+     *  squares in SEED through chains of adjacent squares in PIECES.
+     *  Grows the region by whole-board dilation until it stops changing,
+     *  so each step costs a handful of word operations however large the
+     *  region is. */
+    static long contiguousFrom(long seed, long pieces) {
+        long region = seed & pieces, previous;
+        do {
+            previous = region;
+            region = dilate(region) & pieces;
+        } while (region != previous);
+        return region;
+    }
+
+    /** Return the set of squares that are in SQUARES or adjacent to a
+     *  square in SQUARES (in any of the eight directions). */
+    static long dilate(long squares) {
+        long vertical = squares | (squares << BOARD_SIZE)
+            | (squares >>> BOARD_SIZE);
+        return vertical | ((vertical << 1) & ~FILE_A)
+            | ((vertical >>> 1) & ~FILE_H);
+    }
+
+    /** Record that a piece of side P has been added at square index K,
+     *  merging it with any of P's regions that it touches. */
+    private void addToRegions(Piece p, int k) {
+        long[] regions = _regions[p.ordinal()];
+        int n = _numRegions[p.ordinal()];
+        long merged = 1L << k, adjacent = NEIGHBORS[k];
+        for (int i = 0; i < n; ) {
+            if ((regions[i] & adjacent) != 0) {
+                merged |= regions[i];
+                n -= 1;
+                regions[i] = regions[n];
+            } else {
+                i += 1;
             }
         }
-        return false;
+        regions[n] = merged;
+        _numRegions[p.ordinal()] = n + 1;
     }
 
-    /** Return the size of the as-yet unvisited cluster of squares
-     *  containing P at and adjacent to SQ.  VISITED indicates squares that
-     *  have already been processed or are in different clusters.  Update
-     *  VISITED to reflect squares counted. */
-    private int numContig(Square sq, boolean[][] visited, Piece p) {
-        if (p == EMP || p != get(sq)) {
-            return 0;
+    /** Record that the piece of side P at square index K has been
+     *  removed, splitting the region that contained it if necessary. */
+    private void removeFromRegions(Piece p, int k) {
+        long[] regions = _regions[p.ordinal()];
+        int n = _numRegions[p.ordinal()];
+        long bit = 1L << k;
+        int i;
+        for (i = 0; (regions[i] & bit) == 0; i += 1) {
+            assert i < n;
         }
-        if (visited[sq.col()][sq.row()]) {
-            return 0;
+        long rest = regions[i] & ~bit;
+        if (rest != 0 && Long.bitCount(rest & NEIGHBORS[k]) == 1) {
+            regions[i] = rest;
+            return;
         }
-        visited[sq.col()][sq.row()] = true;
-        int count = 1;
-        Square[] adjacent = sq.adjacent();
-        for (Square adjSq : adjacent) {
-            count += numContig(adjSq, visited, p);
+        n -= 1;
+        regions[i] = regions[n];
+        while (rest != 0) {
+            long region = contiguousFrom(rest & -rest, rest);
+            regions[n] = region;
+            n += 1;
+            rest &= ~region;
         }
-        return count;
+        _numRegions[p.ordinal()] = n;
     }
 
-    /** Set the values of _whiteRegionSizes and _blackRegionSizes. */
+    /** Set the values of _regionSizes from the region masks. */
     private void computeRegions() {
         if (_subsetsInitialized) {
             return;
         }
-        _whiteRegionSizes.clear();
-        _blackRegionSizes.clear();
-        boolean[][] visited = new boolean[8][8];
-        for (Square sq: ALL_SQUARES) {
-            if (get(sq) == BP) {
-                int count = numContig(sq, visited, get(sq));
-                if (count != 0) {
-                    _blackRegionSizes.add(count);
-                }
-            } else if (get(sq) == WP) {
-                int count = numContig(sq, visited, get(sq));
-                if (count != 0) {
-                    _whiteRegionSizes.add(count);
+        for (int p = 0; p < 2; p += 1) {
+            int[] sizes = _regionSizes[p];
+            for (int i = 0; i < _numRegions[p]; i += 1) {
+                int size = Long.bitCount(_regions[p][i]), j;
+                for (j = i; j > 0 && sizes[j - 1] < size; j -= 1) {
+                    sizes[j] = sizes[j - 1];
                 }
+                sizes[j] = size;
             }
         }
-        Collections.sort(_whiteRegionSizes, Collections.reverseOrder());
-        Collections.sort(_blackRegionSizes, Collections.reverseOrder());
         _subsetsInitialized = true;
     }
 
-    /** Return the sizes of all the regions in the current union-find
-     *  structure for side S. */
+    /** Return the number of contiguous regions of SIDE's pieces. */
+    int numRegions(Piece side) {
+        return _numRegions[side.ordinal()];
+    }
+
+    /** Return false if no single move by SIDE can make its pieces
+     *  contiguous, and true if one might.  The piece moved must land next
+     *  to every region that is left when it leaves, so there must be a
+     *  square not held by SIDE that is next to all of SIDE's regions, or
+     *  next to all but one region of a single piece.  Takes time linear
+     *  in the number of regions. */
+    boolean mayConnect(Piece side) {
+        int p = side.ordinal(), n = _numRegions[p];
+        long[] regions = _regions[p];
+        long open = ~_bits[p];
+        long before = ~0L;
+        for (int i = 0; i < n; i += 1) {
+            _dilationsBefore[i] = before;
+            before &= dilate(regions[i]);
+        }
+        if ((before & open) != 0) {
+            return true;
+        }
+        long after = ~0L;
+        for (int i = n - 1; i >= 0; i -= 1) {
+            long region = regions[i];
+            if ((region & (region - 1)) == 0
+                && (_dilationsBefore[i] & after & open) != 0) {
+                return true;
+            }
+            after &= dilate(region);
+        }
+        return false;
+    }
+
+    /** Return the sizes of all the regions of side S's pieces, largest
+     *  first. */
     List<Integer> getRegionSizes(Piece s) {
         computeRegions();
-        if (s == WP) {
-            return _whiteRegionSizes;
-        } else {
-            return _blackRegionSizes;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < _numRegions[s.ordinal()]; i += 1) {
+            sizes.add(_regionSizes[s.ordinal()][i]);
         }
+        return sizes;
     }
 
-    /** Puts the opposite direction by taking in DIRECTION. **/
-    void oppositeDir(int direction) {
-        _opposite.put(0, 4);
-        _opposite.put(1, 5);
-        _opposite.put(2, 6);
-        _opposite.put(3, 7);
-        _opposite.put(4, 0);
-        _opposite.put(5, 1);
-        _opposite.put(6, 2);
-        _opposite.put(7, 3);
+    /** Return the size of the Ith largest region of side S's pieces, for
+     *  0 <= I < numRegions(S). */
+    int regionSize(Piece s, int i) {
+        computeRegions();
+        return _regionSizes[s.ordinal()][i];
     }
 
     /** Find the number of pieces in the line of action by
      * taking in DIR and FROM, returning count. **/
     int numPieces(int dir, Square from) {
-        int count = 1;
-        oppositeDir(dir);
-        int opp = _opposite.get(dir);
-        for (Square thisSq : ALL_SQUARES) {
-            if (from.isValidMove(thisSq)) {
-                int currDir = from.direction(thisSq);
-                if (currDir == dir || currDir == opp) {
-                    if (get(thisSq) != EMP) {
-                        count++;
-                    }
+        int k = from.index();
+        int count = _lineCounts[dir & 3][LINE_INDEX[dir & 3][k]];
+        return _board[k] == EMP ? count + 1 : count;
+    }
+
+    /** Add DELTA times the contribution of a piece at square index K to
+     *  the running feature sums for the side with ordinal SIDE. */
+    private void accumulate(int side, int k, int delta) {
+        int col = k & 7, row = k >> 3;
+        _pieceCount[side] += delta;
+        _sumCol[side] += delta * col;
+        _sumRow[side] += delta * row;
+        _sumSquares[side] += delta * (col * col + row * row);
+        _centrality[side] += delta * CENTRALITY[k];
+    }
+
+    /** Return the number of SIDE's pieces on the board. */
+    int pieceCount(Piece side) {
+        return _pieceCount[side.ordinal()];
+    }
+
+    /** Return the sum of the columns of SIDE's pieces. */
+    int sumCol(Piece side) {
+        return _sumCol[side.ordinal()];
+    }
+
+    /** Return the sum of the rows of SIDE's pieces. */
+    int sumRow(Piece side) {
+        return _sumRow[side.ordinal()];
+    }
+
+    /** Return the sum over SIDE's pieces of COL * COL + ROW * ROW. */
+    int sumSquares(Piece side) {
+        return _sumSquares[side.ordinal()];
+    }
+
+    /** Return the sum of CENTRALITY over the squares of SIDE's pieces. */
+    int centrality(Piece side) {
+        return _centrality[side.ordinal()];
+    }
+
+    /** Add DELTA to the quad counts of the side with ordinal SIDE for
+     *  each of the four quads containing square index K, according to the
+     *  current contents of those quads. */
+    private void countQuads(int side, int k, int delta) {
+        long pieces = _bits[side];
+        int[] quads = _quads[side];
+        for (int q : SQUARE_QUADS[k]) {
+            long[] squares = QUAD_SQUARES[q];
+            int contents = 0;
+            for (int i = 0; i < 4; i += 1) {
+                if ((pieces & squares[i]) != 0) {
+                    contents |= 1 << i;
                 }
             }
+            quads[QUAD_TYPE[contents]] += delta;
+        }
+    }
+
+    /** Add DELTA to the counts of all four lines through square index K. */
+    private void countLines(int k, int delta) {
+        for (int axis = 0; axis < 4; axis += 1) {
+            _lineCounts[axis][LINE_INDEX[axis][k]] += delta;
         }
-        return count;
     }
 
     /** The standard initial configuration for Lines of Action (bottom row
@@ -398,6 +665,127 @@ class Board {
 
     };
 
+    /** LINE_INDEX[D & 3][S] identifies the line through square index S
+     *  in direction D (and its opposite): the column for D & 3 == 0, the
+     *  row for 2, and the diagonal (numbered 0 to 14) for 1 and 3. */
+    private static final int[][] LINE_INDEX = new int[4][NUM_SQUARES];
+
+    /** BETWEEN[S0][S1] is the mask of squares strictly between square
+     *  indices S0 and S1 when they share a line, and 0 otherwise. */
+    private static final long[][] BETWEEN = new long[NUM_SQUARES][NUM_SQUARES];
+
+    /** CENTRALITY[S] is a piece-square value for square index S: larger
+     *  toward the center, and smallest in the corners.  Board keeps each
+     *  side's total (see centrality). */
+    static final int[] CENTRALITY = new int[NUM_SQUARES];
+
+    static {
+        for (Square s : ALL_SQUARES) {
+            int ring = Math.min(Math.min(s.col(), BOARD_SIZE - 1 - s.col()),
+                                Math.min(s.row(), BOARD_SIZE - 1 - s.row()));
+            boolean corner = (s.col() == 0 || s.col() == BOARD_SIZE - 1)
+                && (s.row() == 0 || s.row() == BOARD_SIZE - 1);
+            CENTRALITY[s.index()] = 4 * ring - (corner ? 4 : 0);
+        }
+    }
+
+    /** Quad types: one piece, three pieces, and two diagonally opposite
+     *  pieces.  OTHER_QUAD covers all other contents. */
+    private static final int OTHER_QUAD = 0, Q1 = 1, Q3 = 2, QD = 3;
+
+    /** QUAD_TYPE[C] is the type of a quad whose contents are C: four
+     *  bits, one for each of its lower left, lower right, upper left, and
+     *  upper right squares, from least significant. */
+    private static final int[] QUAD_TYPE = {
+        OTHER_QUAD, Q1, Q1, OTHER_QUAD, Q1, OTHER_QUAD, QD, Q3,
+        Q1, QD, OTHER_QUAD, Q3, OTHER_QUAD, Q3, Q3, OTHER_QUAD
+    };
+
+    /** QUAD_SQUARES[Q] holds the single-bit masks of the lower left, lower
+     *  right, upper left, and upper right squares of quad Q, with 0 for a
+     *  square off the board.  The quad whose lower-left corner is at
+     *  (COL, ROW), for -1 <= COL, ROW < BOARD_SIZE, is numbered
+     *  (ROW + 1) * (BOARD_SIZE + 1) + COL + 1. */
+    private static final long[][] QUAD_SQUARES =
+        new long[(BOARD_SIZE + 1) * (BOARD_SIZE + 1)][4];
+
+    /** SQUARE_QUADS[S] holds the numbers of the four quads that contain
+     *  square index S. */
+    private static final int[][] SQUARE_QUADS = new int[NUM_SQUARES][4];
+
+    static {
+        int[] found = new int[NUM_SQUARES];
+        for (int row = -1; row < BOARD_SIZE; row += 1) {
+            for (int col = -1; col < BOARD_SIZE; col += 1) {
+                int q = (row + 1) * (BOARD_SIZE + 1) + col + 1;
+                for (int i = 0; i < 4; i += 1) {
+                    int c = col + (i & 1), r = row + (i >> 1);
+                    if (exists(c, r)) {
+                        int k = sq(c, r).index();
+                        QUAD_SQUARES[q][i] = 1L << k;
+                        SQUARE_QUADS[k][found[k]] = q;
+                        found[k] += 1;
+                    }
+                }
+            }
+        }
+    }
+
+    /** The squares in the leftmost (a) and rightmost (h) columns. */
+    private static final long
+        FILE_A = 0x0101010101010101L,
+        FILE_H = FILE_A << (BOARD_SIZE - 1);
+
+    /** NEIGHBORS[S] is the mask of squares adjacent to square index S. */
+    private static final long[] NEIGHBORS = new long[NUM_SQUARES];
+
+    /** DESTINATION[D][S][N] is the index of the square N steps from square
+     *  index S in direction D, or -1 if that is off the board. */
+    private static final int[][][] DESTINATION =
+        new int[8][NUM_SQUARES][BOARD_SIZE + 1];
+
+    static {
+        for (Square from : ALL_SQUARES) {
+            int k = from.index();
+            for (Square adj : from.adjacent()) {
+                NEIGHBORS[k] |= 1L << adj.index();
+            }
+            LINE_INDEX[0][k] = from.col();
+            LINE_INDEX[1][k] = from.col() - from.row() + BOARD_SIZE - 1;
+            LINE_INDEX[2][k] = from.row();
+            LINE_INDEX[3][k] = from.col() + from.row();
+            for (int dir = 0; dir < 8; dir += 1) {
+                for (int steps = 0; steps <= BOARD_SIZE; steps += 1) {
+                    Square to = from.moveDest(dir, steps);
+                    DESTINATION[dir][k][steps] = to == null ? -1 : to.index();
+                }
+                long path = 0;
+                for (Square to = from.moveDest(dir, 1); to != null;
+                     to = to.moveDest(dir, 1)) {
+                    BETWEEN[k][to.index()] = path;
+                    path |= 1L << to.index();
+                }
+            }
+        }
+    }
+
+    /** ZOBRIST[P.ordinal()][S] is the Zobrist key component for a piece
+     *  P (BP or WP) on square index S. */
+    private static final long[][] ZOBRIST = new long[2][NUM_SQUARES];
+
+    /** The Zobrist key component present iff white is to move. */
+    private static final long WHITE_TO_MOVE;
+
+    static {
+        Random keys = new Random(0x4c4f41L);
+        for (long[] pieceKeys : ZOBRIST) {
+            for (int k = 0; k < NUM_SQUARES; k += 1) {
+                pieceKeys[k] = keys.nextLong();
+            }
+        }
+        WHITE_TO_MOVE = keys.nextLong();
+    }
+
     /** Current contents of the board.  Square S is at _board[S.index()]. */
     private final Piece[] _board = new Piece[BOARD_SIZE  * BOARD_SIZE];
 
@@ -405,7 +793,10 @@ class Board {
     private final ArrayList<Move> _moves = new ArrayList<>();
     /** Current side on move. */
     private Piece _turn;
-    /** Limit on number of moves before tie is declared.  */
+    /** Zobrist key of the current position (see zobristKey). */
+    private long _key;
+    /** Limit on number of moves (by both sides together) before tie is
+     *  declared.  */
     private int _moveLimit;
     /** True iff the value of _winner is known to be valid. */
     private boolean _winnerKnown;
@@ -413,17 +804,67 @@ class Board {
      *  in progress).  Use only if _winnerKnown. */
     private Piece _winner = null;
 
-    /** True iff subsets computation is up-to-date. */
+    /** The contiguous regions of each side's pieces, indexed by Piece
+     *  ordinal (BP or WP).  _regions[P][0 .. _numRegions[P]-1] are disjoint
+     *  masks of P's pieces, each containing one maximal group of pieces
+     *  connected through adjacent squares.  Maintained by set, and
+     *  therefore by makeMove and retract, one square at a time. */
+    private final long[][] _regions = new long[2][NUM_SQUARES / 2];
+    /** Number of valid entries in each row of _regions. */
+    private final int[] _numRegions = new int[2];
+    /** Scratch space for mayConnect: the intersection of the dilations of
+     *  the regions before each one. */
+    private final long[] _dilationsBefore = new long[NUM_SQUARES / 2];
+
+    /** Running sums of features of each side's pieces, indexed by
+     *  Piece ordinal and maintained by set: the number of pieces, the
+     *  sums of their columns, rows, and squared coordinates, and the
+     *  total of CENTRALITY over their squares. */
+    private final int[]
+        _pieceCount = new int[2],
+        _sumCol = new int[2],
+        _sumRow = new int[2],
+        _sumSquares = new int[2],
+        _centrality = new int[2];
+
+    /** Counts of each type of quad (see QUAD_TYPE) in each side's
+     *  pieces, indexed by Piece ordinal and then quad type.  Maintained by
+     *  set, which recounts only the four quads around a changed square. */
+    private final int[][] _quads = new int[2][4];
+
+    /** True iff _regionSizes is up-to-date. */
     private boolean _subsetsInitialized;
 
-    /** List of the sizes of continguous clusters of pieces, by color. */
-    private final ArrayList<Integer>
-        _whiteRegionSizes = new ArrayList<>(),
-        _blackRegionSizes = new ArrayList<>();
+    /** The sizes of the regions in _regions, by side (as for _regions),
+     *  largest first. */
+    private final int[][] _regionSizes = new int[2][NUM_SQUARES / 2];
+
+    /** Occupancy masks, indexed by Piece ordinal (BP or WP).  Bit
+     *  S.index() of _bits[P.ordinal()] is set iff get(S) == P. */
+    private final long[] _bits = new long[2];
+
+    /** Number of pieces on each line of the board.  _lineCounts[D & 3][L]
+     *  counts the pieces on the line numbered L (see LINE_INDEX) running
+     *  in direction D. */
+    private final int[][] _lineCounts = new int[4][2 * BOARD_SIZE - 1];
+
+    /** Saved state needed to retract one move.  Records are kept after
+     *  retraction and reused, so that makeMove does not allocate once the
+     *  game (or search) has reached a given depth. */
+    private static class Undo {
+        /** Set my state to a copy of OTHER. */
+        void copyFrom(Undo other) {
+            winner = other.winner;
+            winnerKnown = other.winnerKnown;
+        }
 
-    /** HashMap of opposite directions. **/
-    private Map<Integer, Integer> _opposite = new HashMap<>();
+        /** The values of _winner and _winnerKnown before the move. */
+        private Piece winner;
+        /** See winner. */
+        private boolean winnerKnown;
+    }
 
-    /** Replaces piece in the last move. */
-    private ArrayList<Piece> _replaced = new ArrayList<>();
+    /** Undo records for the moves in _moves.  Entry K is valid for
+     *  K < movesMade(); later entries are spare. */
+    private final ArrayList<Undo> _undo = new ArrayList<>();
 }
@@ -2,6 +2,14 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -50,6 +58,26 @@ public class BoardTest {
         { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
     };
 
+    /** A position set up by hand in which black has 111 legal moves. */
+    static final Piece[][] BOARD4 = {
+        {  BP, EMP, EMP, EMP, EMP,  BP,  BP,  BP },
+        { EMP, EMP,  BP,  BP,  BP, EMP, EMP, EMP },
+        {  BP, EMP, EMP,  BP, EMP,  BP,  BP, EMP },
+        { EMP, EMP, EMP, EMP,  BP,  BP, EMP, EMP },
+        {  BP, EMP,  BP, EMP,  BP, EMP, EMP, EMP },
+        { EMP,  BP,  BP, EMP, EMP,  BP, EMP,  BP },
+        { EMP, EMP, EMP,  BP,  BP,  BP, EMP, EMP },
+        { EMP, EMP,  BP, EMP, EMP, EMP,  BP, EMP },
+    };
+
+    /** An empty board. */
+    static final Piece[][] EMPTY = new Piece[8][8];
+
+    static {
+        for (Piece[] row : EMPTY) {
+            Arrays.fill(row, EMP);
+        }
+    }
 
     static final String BOARD1_STRING =
         "===\n"
@@ -85,6 +113,54 @@ public class BoardTest {
         assertFalse("b1-b4", b.isLegal(mv("b1-b4")));
     }
 
+    /** Test move generation. */
+    @Test
+    public void testLegalMoves1() {
+        Board b0 = new Board();
+        assertEquals("initial number of moves", 36, b0.legalMoves().size());
+        Board b1 = new Board(BOARD1, BP);
+        for (Move mv : b1.legalMoves()) {
+            assertTrue(mv.toString(), b1.isLegal(mv));
+        }
+        assertTrue("f3-d5 generated", b1.legalMoves().contains(mv("f3-d5")));
+        assertFalse("f3-h3 generated", b1.legalMoves().contains(mv("f3-h3")));
+    }
+
+    @Test
+    public void testCaptures() {
+        Board b1 = new Board(BOARD1, BP);
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b1.generateCaptures(moves);
+        int expected = 0;
+        for (Move mv : b1.legalMoves()) {
+            if (b1.get(mv.getTo()) == WP) {
+                expected += 1;
+            }
+        }
+        assertEquals("number of captures", expected, n);
+        for (int i = 0; i < n; i += 1) {
+            Move mv = Move.mv(moves[i]);
+            assertTrue(mv.toString(), b1.isLegal(mv));
+            assertEquals(mv.toString(), WP, b1.get(mv.getTo()));
+        }
+    }
+
+    @Test
+    public void testCrowdedMoves() {
+        Board b4 = new Board(BOARD4, BP);
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b4.generateMoves(moves);
+        assertEquals("number of moves", 111, n);
+        HashSet<Integer> distinct = new HashSet<>();
+        for (int i = 0; i < n; i += 1) {
+            assertTrue(Move.mv(moves[i]).toString(),
+                       b4.isLegal(Move.mv(moves[i])));
+            distinct.add(moves[i]);
+        }
+        assertEquals("distinct moves", n, distinct.size());
+        assertEquals("legalMoves", n, b4.legalMoves().size());
+    }
+
     /** Test contiguity. */
     @Test
     public void testContiguous1() {
@@ -102,6 +178,58 @@ public class BoardTest {
         assertTrue("Board 3 game over", b3.gameOver());
     }
 
+    /** Test Euler numbers and the connectivity bound. */
+    @Test
+    public void testEuler1() {
+        Board b0 = new Board();
+        assertEquals("initial black Euler number", 2, b0.eulerNumber(BP));
+        assertEquals("initial white regions bound", 2, b0.minRegions(WP));
+        Board b = new Board(EMPTY, BP);
+        for (String s : new String[] { "c3", "d3", "e3", "c4", "e4",
+                                       "c5", "d5", "e5" }) {
+            b.set(sq(s), BP);
+        }
+        assertEquals("ring Euler number", 0, b.eulerNumber(BP));
+        assertEquals("ring regions bound", 1, b.minRegions(BP));
+        b.set(sq("d4"), BP);
+        assertEquals("block Euler number", 1, b.eulerNumber(BP));
+        b.set(sq("d4"), EMP);
+        b.set(sq("d3"), EMP);
+        b.set(sq("d5"), EMP);
+        assertEquals("split Euler number", 2, b.eulerNumber(BP));
+        assertEquals("split regions", 2, b.numRegions(BP));
+    }
+
+    /** Test that mayConnect holds whenever a move connects the side on
+     *  move, in positions from random games. */
+    @Test
+    public void testMayConnect() {
+        Board b0 = new Board();
+        assertFalse("initial black", b0.mayConnect(BP));
+        assertFalse("initial white", b0.mayConnect(WP));
+        Random random = new Random(5);
+        int[] moves = new int[Board.MAX_MOVES];
+        int connecting = 0;
+        for (int game = 0; game < 200; game += 1) {
+            Board b = new Board();
+            while (!b.gameOver()) {
+                Piece side = b.turn();
+                int n = b.generateMoves(moves);
+                for (int i = 0; i < n; i += 1) {
+                    b.makeMove(moves[i]);
+                    boolean won = b.piecesContiguous(side);
+                    b.retract();
+                    if (won) {
+                        assertTrue(b.toString(), b.mayConnect(side));
+                        connecting += 1;
+                    }
+                }
+                b.makeMove(moves[random.nextInt(n)]);
+            }
+        }
+        assertTrue("no connecting moves tried", connecting > 0);
+    }
+
     @Test
     public void testEquals1() {
         Board b1 = new Board(BOARD1, BP);
@@ -125,6 +253,259 @@ public class BoardTest {
                      0, b1.movesMade());
     }
 
+    @Test
+    public void testRetract2() {
+        Board b0 = new Board(BOARD1, BP);
+        Board b1 = new Board(b0);
+        b1.makeMove(mv("f3-d5"));
+        b1.makeMove(b1.legalMoves().get(0));
+        Board b2 = new Board(b1);
+        b2.retract();
+        b2.retract();
+        assertEquals("Board 1 restored after two retractions", b0, b2);
+        assertEquals("copy unaffected by retraction", 2, b1.movesMade());
+    }
+
+    @Test
+    public void testZobrist() {
+        Board b0 = new Board();
+        long key0 = b0.zobristKey();
+        Board b1 = new Board();
+        for (String m : new String[] { "b1-b3", "a2-c2", "g1-g3", "a4-c4" }) {
+            b1.makeMove(mv(m));
+        }
+        Board b2 = new Board();
+        for (String m : new String[] { "g1-g3", "a4-c4", "b1-b3", "a2-c2" }) {
+            b2.makeMove(mv(m));
+        }
+        assertEquals("transposed keys", b1.zobristKey(), b2.zobristKey());
+        assertEquals("transposed boards", b1, b2);
+        assertEquals("transposed hash codes", b1.hashCode(), b2.hashCode());
+        assertTrue("key changed by moves", b1.zobristKey() != key0);
+        b2.set(sq("a1"), EMP, WP);
+        assertTrue("key includes side to move",
+                   b1.zobristKey() != b2.zobristKey());
+        while (b1.movesMade() > 0) {
+            b1.retract();
+        }
+        assertEquals("key restored after retraction", key0, b1.zobristKey());
+    }
+
+    @Test
+    public void testNullMove() {
+        Board b = new Board();
+        b.makeMove(mv("b1-b3"));
+        long key = b.zobristKey();
+        b.makeNullMove();
+        assertEquals("null move passes turn", BP, b.turn());
+        assertEquals("null move not counted", 1, b.movesMade());
+        assertTrue("null move changes key", b.zobristKey() != key);
+        b.makeMove(mv("b8-b6"));
+        b.retract();
+        b.retractNullMove();
+        assertEquals("turn restored", WP, b.turn());
+        assertEquals("key restored", key, b.zobristKey());
+    }
+
+    @Test
+    public void testRetractWin() {
+        Board b = new Board(EMPTY, BP);
+        b.set(sq("a1"), BP);
+        b.set(sq("a2"), BP);
+        b.set(sq("c2"), BP);
+        b.set(sq("f6"), WP);
+        b.set(sq("h8"), WP);
+        assertFalse("game over before c2-b1", b.gameOver());
+        b.makeMove(mv("c2-b1"));
+        assertEquals("black wins after c2-b1", BP, b.winner());
+        b.retract();
+        assertFalse("game over after retraction", b.gameOver());
+        assertEquals("black to move after retraction", BP, b.turn());
+    }
+
+    /** Test that the state Board keeps up to date in set, makeMove,
+     *  retract, and copyFrom (regions and evaluation sums) matches that of
+     *  a board made afresh from the same squares, and that found by a
+     *  plain rescan, through random games that are then unwound
+     *  completely. */
+    @Test
+    public void testIncrementalState() {
+        Random random = new Random(5);
+        Board copy = new Board();
+        int captures = 0;
+        for (int game = 0; game < RANDOM_GAMES; game += 1) {
+            Board b = new Board();
+            for (int i = 0; i < RANDOM_SETS; i += 1) {
+                Square s = Square.ALL_SQUARES[random.nextInt(64)];
+                b.set(s, SET_PIECES[random.nextInt(SET_PIECES.length)]);
+                checkIncremental(b);
+            }
+            int made = 0;
+            while (!b.gameOver()) {
+                if (made > 0 && random.nextInt(4) == 0) {
+                    b.retract();
+                    made -= 1;
+                } else {
+                    List<Move> moves = b.legalMoves();
+                    if (moves.isEmpty()) {
+                        break;
+                    }
+                    Move move = moves.get(random.nextInt(moves.size()));
+                    if (b.get(move.getTo()) != EMP) {
+                        captures += 1;
+                    }
+                    b.makeMove(move);
+                    made += 1;
+                }
+                checkIncremental(b);
+                copy.copyFrom(b);
+                checkIncremental(copy);
+            }
+            while (made > 0) {
+                b.retract();
+                made -= 1;
+                checkIncremental(b);
+            }
+        }
+        assertTrue("no captures made", captures > 0);
+    }
+
+    /** Test contiguousFrom against a flood fill that visits one square
+     *  at a time, on random masks with extra pieces on files a and h, and
+     *  on masks in which squares at opposite ends of adjacent ranks are
+     *  next to each other in index order but not on the board. */
+    @Test
+    public void testContiguousFrom() {
+        long fileA = 0x0101010101010101L, fileH = fileA << 7;
+        Random random = new Random(9);
+        for (int n = 0; n < RANDOM_MASKS; n += 1) {
+            long pieces = random.nextLong();
+            for (int i = n % 3; i > 0; i -= 1) {
+                pieces &= random.nextLong();
+            }
+            if (n % 2 == 0) {
+                pieces |= (fileA | fileH) & random.nextLong();
+            }
+            for (long rest = pieces; rest != 0; rest &= rest - 1) {
+                int k = Long.numberOfTrailingZeros(rest);
+                assertEquals("mask " + Long.toHexString(pieces),
+                             floodFrom(k, pieces),
+                             Board.contiguousFrom(1L << k, pieces));
+            }
+            long seed = random.nextLong(), expected = 0;
+            for (long rest = seed & pieces; rest != 0; rest &= rest - 1) {
+                expected |=
+                    floodFrom(Long.numberOfTrailingZeros(rest), pieces);
+            }
+            assertEquals("seed " + Long.toHexString(seed),
+                         expected, Board.contiguousFrom(seed, pieces));
+        }
+        long h3 = 1L << sq("h3").index(), a4 = 1L << sq("a4").index(),
+            h2 = 1L << sq("h2").index(), a3 = 1L << sq("a3").index();
+        assertEquals("h3 and a4", h3, Board.contiguousFrom(h3, h3 | a4));
+        assertEquals("h2 and a3", h2, Board.contiguousFrom(h2, h2 | a3));
+        assertEquals("a3 and h3", a3, Board.contiguousFrom(a3, a3 | h3));
+        assertEquals("files a and h", fileA,
+                     Board.contiguousFrom(1L, fileA | fileH));
+        assertEquals("file h", fileH,
+                     Board.contiguousFrom(1L << 63, fileH | (fileA & ~1L)));
+        assertEquals("whole board", -1L, Board.contiguousFrom(1L, -1L));
+    }
+
+    /** Check that the incrementally kept state of B matches that of a
+     *  board made afresh from B's squares, and that found by rescanning
+     *  B's squares, and that both boards get the same evaluation. */
+    private static void checkIncremental(Board b) {
+        Piece[][] contents = new Piece[8][8];
+        for (Square s : Square.ALL_SQUARES) {
+            contents[s.row()][s.col()] = b.get(s);
+        }
+        Board fresh = new Board(contents, b.turn());
+        String where = b.toString();
+        for (Piece side : new Piece[] { WP, BP }) {
+            List<Integer> sizes = floodRegionSizes(b, side);
+            assertEquals(where, sizes.size(), b.numRegions(side));
+            assertEquals(where, sizes, b.getRegionSizes(side));
+            assertEquals(where, fresh.numRegions(side), b.numRegions(side));
+            assertEquals(where, fresh.getRegionSizes(side),
+                         b.getRegionSizes(side));
+            int count = 0, sumCol = 0, sumRow = 0, sumSquares = 0,
+                centrality = 0;
+            for (Square s : Square.ALL_SQUARES) {
+                if (b.get(s) == side) {
+                    int col = s.col(), row = s.row();
+                    count += 1;
+                    sumCol += col;
+                    sumRow += row;
+                    sumSquares += col * col + row * row;
+                    centrality += Board.CENTRALITY[s.index()];
+                }
+            }
+            assertEquals(where, count, b.pieceCount(side));
+            assertEquals(where, sumCol, b.sumCol(side));
+            assertEquals(where, sumRow, b.sumRow(side));
+            assertEquals(where, sumSquares, b.sumSquares(side));
+            assertEquals(where, centrality, b.centrality(side));
+        }
+        if (!b.gameOver()) {
+            Evaluator evaluator = new WeightedEvaluator();
+            assertEquals(where, evaluator.evaluate(fresh),
+                         evaluator.evaluate(b));
+        }
+    }
+
+    /** Return the sizes of the regions of SIDE's pieces on B, largest
+     *  first, found by flood fills over B's squares. */
+    private static List<Integer> floodRegionSizes(Board b, Piece side) {
+        long pieces = 0;
+        for (Square s : Square.ALL_SQUARES) {
+            if (b.get(s) == side) {
+                pieces |= 1L << s.index();
+            }
+        }
+        List<Integer> sizes = new ArrayList<>();
+        while (pieces != 0) {
+            long region =
+                floodFrom(Long.numberOfTrailingZeros(pieces), pieces);
+            sizes.add(Long.bitCount(region));
+            pieces &= ~region;
+        }
+        sizes.sort(Collections.reverseOrder());
+        return sizes;
+    }
+
+    /** Return the squares in PIECES connected to square index K, which
+     *  is in PIECES, found by a breadth-first search that visits one
+     *  square at a time. */
+    private static long floodFrom(int k, long pieces) {
+        long region = 1L << k;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(k);
+        while (!queue.isEmpty()) {
+            int s = queue.remove();
+            for (int dc = -1; dc <= 1; dc += 1) {
+                for (int dr = -1; dr <= 1; dr += 1) {
+                    int c = s % 8 + dc, r = s / 8 + dr, t = 8 * r + c;
+                    if (c >= 0 && c < 8 && r >= 0 && r < 8
+                        && (pieces & ~region & (1L << t)) != 0) {
+                        region |= 1L << t;
+                        queue.add(t);
+                    }
+                }
+            }
+        }
+        return region;
+    }
+
+    /** Number of random masks tried by testContiguousFrom. */
+    private static final int RANDOM_MASKS = 2000;
+    /** Number of random games played by testIncrementalState. */
+    private static final int RANDOM_GAMES = 100;
+    /** Number of squares set at random before each of those games. */
+    private static final int RANDOM_SETS = 6;
+    /** Contents given to those squares. */
+    private static final Piece[] SET_PIECES = { EMP, WP, BP };
+
 
 
 }
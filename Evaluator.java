@@ -0,0 +1,20 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+/** A static evaluation function for positions in Lines of Action, used
+ *  by MachinePlayer to score the positions at the leaves of its search.
+ *  @author Devyanshi Agarwal
+ */
+interface Evaluator {
+
+    /** Return an estimate of the value of BOARD, a position in which the
+     *  game is not over.  The value is positive if the position favors
+     *  white and negative if it favors black, and its magnitude is less
+     *  than MAX_VALUE.  The same position always gets the same value. */
+    int evaluate(Board board);
+
+    /** A bound on the magnitude of the value of any evaluation. */
+    int MAX_VALUE = 1 << 20;
+
+}
@@ -31,17 +31,11 @@ class GUIPlayer extends Player implements Reporter {
 
     @Override
     String getMove() {
-        while (true) {
-            String command;
-            command = getGame().readLine(false);
-            if (command == null) {
-                command = _gui.readCommand();
-            }
-            Move move = Move.mv(command);
-            if (move == null || getBoard().isLegal(move)) {
-                return command;
-            }
+        String command = getGame().readLine(false);
+        if (command == null) {
+            command = _gui.readCommand();
         }
+        return command;
     }
 
     @Override
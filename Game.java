@@ -3,8 +3,17 @@
 package loa;
 
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
@@ -15,6 +24,16 @@ import static loa.Main.*;
 import static loa.Utils.*;
 
 /** Represents one game of Lines of Action.
+ *
+ *  Input is read in a thread of its own, and automated players choose
+ *  their moves in another, so that a command that cannot wait for a
+ *  move (see URGENT_COMMANDS) and that arrives while an automated
+ *  player is choosing one cancels it.  Commands are carried out strictly
+ *  in the order read.  As when reading input only on manual players'
+ *  turns, commands waiting when an automated player starts a move wait
+ *  for the next manual turn or the end of the game, unless a cancelling
+ *  command follows them; then they and it are carried out before the
+ *  next automated move.
  *  @author Devyanshi Agarwal */
 class Game {
 
@@ -22,6 +41,12 @@ class Game {
     static final int MILLISEC = 1000;
     /** Name of help text resource. */
     static final String HELP_FILE = "loa/HelpText.txt";
+    /** Commands that cancel an automated player's move under way. */
+    static final List<String> URGENT_COMMANDS =
+        Arrays.asList("quit", "undo", "new", "manual", "auto");
+    /** Milliseconds between checks for urgent commands while an automated
+     *  player is choosing a move. */
+    static final long POLL_INTERVAL = 10;
 
     /** Controller for one or more games of LOA, using
      *  MANUALPLAYERTEMPLATE as an exemplar for manual players
@@ -31,10 +56,11 @@ class Game {
      *  to report moves, wins, and errors to user. If LOGFILE is
      *  non-null, copies all commands to it. If STRICT, exits the
      *  program with non-zero code on receiving an erroneous move from a
-     *  player. */
+     *  player.  The analyze command uses a transposition table of
+     *  HASHSIZE megabytes. */
     Game(View view, PrintStream logFile, Reporter reporter,
          Player manualPlayerTemplate, Player autoPlayerTemplate,
-         boolean strict) {
+         boolean strict, int hashSize) {
         _view = view;
         _playing = false;
         _logFile = logFile;
@@ -46,6 +72,7 @@ class Game {
         _black = _manualPlayerTemplate.create(BP, this);
         _reporter = reporter;
         _strict = strict;
+        _hashSize = hashSize;
     }
 
     /** Return the current board. */
@@ -92,6 +119,7 @@ class Game {
         if (line.length() == 0) {
             return;
         }
+        stopAnalysis();
         if (_logFile != null) {
             _logFile.println(line);
             _logFile.flush();
@@ -102,12 +130,14 @@ class Game {
             case "undo":
                 _board.retract();
                 _board.retract();
+                positionChanged();
                 break;
             case "#":
                 break;
             case "new":
                 _board.clear();
                 _playing = true;
+                positionChanged();
                 break;
             case "dump":
                 System.out.printf("%s%n", _board);
@@ -131,6 +161,9 @@ class Game {
             case "limit":
                 limitCommand(command.group(2));
                 break;
+            case "analyze":
+                analyzeCommand(command.group(2));
+                break;
             case "?": case "help":
                 help();
                 break;
@@ -172,9 +205,11 @@ class Game {
     private void manualCommand(String player) {
         switch (player) {
         case "white":
+            _white.dispose();
             _white = _manualPlayerTemplate.create(WP, this);
             break;
         case "black":
+            _black.dispose();
             _black = _manualPlayerTemplate.create(BP, this);
             break;
         default:
@@ -186,9 +221,11 @@ class Game {
     private void autoCommand(String player) {
         switch (player) {
         case "white":
+            _white.dispose();
             _white = _autoPlayerTemplate.create(WP, this);
             break;
         case "black":
+            _black.dispose();
             _black = _autoPlayerTemplate.create(BP, this);
             break;
         default:
@@ -215,6 +252,7 @@ class Game {
                 error("invalid next player: -");
             } else {
                 _board.set(sq(S), p, next);
+                positionChanged();
             }
         } catch (IllegalArgumentException excp) {
             error("invalid arguments to set: set %s %s %s%n", S, content,
@@ -222,6 +260,13 @@ class Game {
         }
     }
 
+    /** Tell both players that the position has changed other than by a
+     *  move. */
+    private void positionChanged() {
+        _white.positionChanged();
+        _black.positionChanged();
+    }
+
     /** Set the corrent move limit according to the numeral in LIMIT.  LIMIT
      *  must be a valid numeral that is greater than the current number of
      *  moves by either player in the current game. */
@@ -233,6 +278,38 @@ class Game {
         }
     }
 
+    /** Start analyzing the current board in the background, reporting
+     *  the best LINES lines (a numeral, or empty for the default) until
+     *  the next command. */
+    private void analyzeCommand(String lines) {
+        int n = Analyzer.DEFAULT_LINES;
+        if (!lines.isEmpty()) {
+            try {
+                n = Integer.parseInt(lines);
+            } catch (NumberFormatException excp) {
+                n = 0;
+            }
+        }
+        if (n <= 0) {
+            error("invalid number of lines: %s%n", lines);
+        } else if (_board.gameOver()) {
+            error("game is over%n");
+        } else {
+            if (_analyzer == null) {
+                _analyzer = new Analyzer(_reporter, _hashSize,
+                                         new WeightedEvaluator());
+            }
+            _analyzer.start(_board, n);
+        }
+    }
+
+    /** Stop any analysis started by the analyze command. */
+    private void stopAnalysis() {
+        if (_analyzer != null) {
+            _analyzer.stop();
+        }
+    }
+
     /** Perform the move designated by LINE, if a valid move.  Return
      *  true iff LINE has the syntax of a move. */
     private boolean processMove(String line) {
@@ -245,6 +322,8 @@ class Game {
             error("illegal move: %s%n", line);
         } else {
             _board.makeMove(move);
+            _white.moveMade(move);
+            _black.moveMade(move);
         }
         return true;
     }
@@ -253,6 +332,7 @@ class Game {
     public void play() {
         _board = new Board();
         _playing = true;
+        startReading();
 
         while (true) {
             try {
@@ -263,18 +343,25 @@ class Game {
                     _playing = false;
                 }
                 if (_playing) {
+                    Player player;
                     switch (_board.turn()) {
                     case WP:
-                        next = _white.getMove();
+                        player = _white;
                         break;
                     case BP:
-                        next = _black.getMove();
+                        player = _black;
                         break;
                     default:
                         throw new Error("Unreachable statement");
                     }
+                    if (player.isManual() || _commandsDue > 0) {
+                        next = nextCommand();
+                    } else {
+                        stopAnalysis();
+                        next = engineMove(player);
+                    }
                 } else {
-                    next = _nonplayer.getMove();
+                    next = nextCommand();
                 }
                 if (next == null) {
                     return;
@@ -287,6 +374,85 @@ class Game {
         }
     }
 
+    /** Start a daemon thread that reads commands and moves with
+     *  _nonplayer and queues them in _commands, followed by END_OF_INPUT
+     *  when input runs out. */
+    private void startReading() {
+        Thread reader = new Thread(() -> {
+            while (true) {
+                String line = _nonplayer.getMove();
+                if (line == null) {
+                    _commands.add(END_OF_INPUT);
+                    return;
+                }
+                _commands.add(line);
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /** Return the next command or move read, waiting for one as needed,
+     *  or null if input has run out. */
+    private String nextCommand() {
+        String line;
+        try {
+            line = _commands.take();
+        } catch (InterruptedException excp) {
+            throw new Error("unexpected interrupt");
+        }
+        _commandsDue = Math.max(0, _commandsDue - 1);
+        return line == END_OF_INPUT ? null : line;
+    }
+
+    /** Return the move chosen by PLAYER, an automated player, which
+     *  chooses it in the _engine thread.  While it does, cancel the move
+     *  (see Player.cancel) whenever an urgent command has arrived since
+     *  it started, and arrange for the commands up to and including that
+     *  one to be carried out before the next automated move. */
+    private String engineMove(Player player) {
+        int queued = _commands.size();
+        Future<String> move = _engine.submit(player::getMove);
+        while (true) {
+            try {
+                return move.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException excp) {
+                int urgent = urgentCommandIndex(queued);
+                if (urgent >= 0) {
+                    _commandsDue = Math.max(_commandsDue, urgent + 1);
+                    player.cancel();
+                }
+            } catch (ExecutionException excp) {
+                Throwable cause = excp.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new Error(cause);
+            } catch (InterruptedException excp) {
+                throw new Error("unexpected interrupt");
+            }
+        }
+    }
+
+    /** Return the position in _commands of the first command in
+     *  URGENT_COMMANDS that follows the first START entries, or -1 if
+     *  there is none. */
+    private int urgentCommandIndex(int start) {
+        int k = 0;
+        for (String line : _commands) {
+            if (k >= start) {
+                Matcher command = COMMAND_PATN.matcher(line.trim());
+                if (command.matches()
+                    && URGENT_COMMANDS.contains(command.group(1)
+                                                .toLowerCase())) {
+                    return k;
+                }
+            }
+            k += 1;
+        }
+        return -1;
+    }
+
     /** Print an announcement of the winner.  Requires that the game has been
      *  won. */
     private void announceWinner() {
@@ -345,9 +511,32 @@ class Game {
     /** Input source. */
     private Scanner _input;
 
+    /** Marks the end of input in _commands (compared by identity). */
+    private static final String END_OF_INPUT = new String();
+    /** Commands and moves read by the thread started by startReading, not
+     *  yet processed. */
+    private final LinkedBlockingQueue<String> _commands =
+        new LinkedBlockingQueue<>();
+    /** Number of commands at the head of _commands to be carried out
+     *  before the next automated move, because an automated move was
+     *  cancelled to carry them out. */
+    private int _commandsDue;
+    /** Runs automated players' getMove. */
+    private final ExecutorService _engine =
+        Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+        });
+
     /** Reporter for messages and errors. */
     private Reporter _reporter;
 
+    /** Runs the analyze command, or null if it has not been used. */
+    private Analyzer _analyzer;
+    /** Size in megabytes of _analyzer's transposition table. */
+    private final int _hashSize;
+
     /** If true, command errors cause termination with error exit
      *  code. */
     private boolean _strict;
@@ -0,0 +1,305 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+
+/** Tests of the Game class, playing from scripted input.
+ *  @author Devyanshi Agarwal
+ */
+public class GameTest {
+
+    /** Test that commands queued before an automated move, urgent or not,
+     *  wait for the end of the game, as though read only when needed.
+     *  The view holds up play until the whole script is queued. */
+    @Test
+    public void testQueuedCommands() throws InterruptedException {
+        LinkedBlockingQueue<String> script = new LinkedBlockingQueue<>();
+        script.add("auto black");
+        script.add("dump");
+        script.add("manual white");
+        script.add(END);
+        ScriptPlayer manual = new ScriptPlayer(script);
+        FirstMovePlayer auto = new FirstMovePlayer(null);
+        RecordingReporter reporter = new RecordingReporter();
+        View view = unused -> {
+            try {
+                manual._finished.await();
+            } catch (InterruptedException excp) {
+                /* Ignore. */
+            }
+        };
+        Game game = new Game(view, null, reporter, manual, auto, false, 1);
+        PrintStream out = System.out;
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(dump, true));
+        try {
+            game.play();
+        } finally {
+            System.setOut(out);
+        }
+        Board board = game.getBoard();
+        assertTrue("game not played to the end", board.gameOver());
+        assertTrue("no moves played", board.movesMade() > 0);
+        assertEquals("moves reported", board.movesMade(),
+                     reporter._moves.size());
+        assertEquals("result announced", 1, reporter._notes.size());
+        assertTrue("dump of final board",
+                   dump.toString().contains(board.toString()));
+        assertEquals("automated move cancelled", 1, auto._cancelled.getCount());
+        assertTrue("manual white not done", game.manualWhite());
+    }
+
+    /** Test that an urgent command read during an automated move cancels
+     *  it and is carried out before the next one. */
+    @Test
+    public void testUrgentCommand() throws InterruptedException {
+        LinkedBlockingQueue<String> script = new LinkedBlockingQueue<>();
+        script.add("b1-b3");
+        ScriptPlayer manual = new ScriptPlayer(script);
+        FirstMovePlayer auto = new FirstMovePlayer(new CountDownLatch(1));
+        Game game = new Game(new NullView(), null, new RecordingReporter(),
+                             manual, auto, false, 1);
+        Thread player = new Thread(game::play);
+        player.start();
+        assertTrue("automated move not started",
+                   auto._started.await(TIMEOUT, TimeUnit.SECONDS));
+        script.add("manual white");
+        script.add(END);
+        player.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+        assertFalse("game did not end with input", player.isAlive());
+        assertEquals("automated move not cancelled", 0,
+                     auto._cancelled.getCount());
+        assertEquals("moves made", 2, game.getBoard().movesMade());
+        assertTrue("manual white not done", game.manualWhite());
+    }
+
+    /** Test that a move read during an automated move, and so illegal
+     *  in the position when it is read, is made once it is that side's
+     *  turn. */
+    @Test
+    public void testMoveDuringEngineMove() throws InterruptedException {
+        Board expected = new Board();
+        expected.makeMove(Move.mv("b1-b3"));
+        expected.makeMove(expected.legalMoves().get(0));
+        Move reply = expected.legalMoves().get(0);
+        expected.makeMove(reply);
+        expected.makeMove(expected.legalMoves().get(0));
+
+        LinkedBlockingQueue<String> script = new LinkedBlockingQueue<>();
+        script.add("b1-b3");
+        ScriptPlayer manual = new ScriptPlayer(script);
+        CountDownLatch release = new CountDownLatch(1);
+        FirstMovePlayer auto = new FirstMovePlayer(release);
+        Game game = new Game(new NullView(), null, new RecordingReporter(),
+                             manual, auto, false, 1);
+        Thread player = new Thread(game::play);
+        player.start();
+        assertTrue("automated move not started",
+                   auto._started.await(TIMEOUT, TimeUnit.SECONDS));
+        script.add(reply.toString());
+        script.add(END);
+        manual._finished.await(TIMEOUT, TimeUnit.SECONDS);
+        release.countDown();
+        player.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+        assertFalse("game did not end with input", player.isAlive());
+        assertEquals("automated move cancelled", 1,
+                     auto._cancelled.getCount());
+        assertEquals("moves made", 4, game.getBoard().movesMade());
+        assertEquals("position", expected, game.getBoard());
+    }
+
+    /** Test that undo, new, and set tell the players that the position
+     *  has changed, and that a player is told when it is replaced. */
+    @Test
+    public void testPlayersNotified() {
+        LinkedBlockingQueue<String> script = new LinkedBlockingQueue<>();
+        script.add("new");
+        script.add("set d4 black black");
+        script.add("b1-b3");
+        script.add("undo");
+        script.add("manual white");
+        script.add(END);
+        ScriptPlayer manual = new ScriptPlayer(script);
+        FirstMovePlayer auto = new FirstMovePlayer(null);
+        Game game = new Game(new NullView(), null, new RecordingReporter(),
+                             manual, auto, false, 1);
+        game.play();
+        assertEquals("position changes", 3, auto._positionChanges.get());
+        assertEquals("disposals", 1, auto._disposals.get());
+        assertTrue("manual white not done", game.manualWhite());
+        assertEquals("moves after undo", 0, game.getBoard().movesMade());
+    }
+
+    /** A manual player that supplies the commands and moves in a script,
+     *  taken from a queue in which END marks the end of input. */
+    private static class ScriptPlayer extends Player {
+
+        /** A template player with SCRIPT as its script. */
+        ScriptPlayer(LinkedBlockingQueue<String> script) {
+            this(null, null, script, new CountDownLatch(1));
+        }
+
+        /** A player of SIDE in GAME with SCRIPT as its script, counting
+         *  down FINISHED when the script runs out. */
+        ScriptPlayer(Piece side, Game game,
+                     LinkedBlockingQueue<String> script,
+                     CountDownLatch finished) {
+            super(side, game);
+            _script = script;
+            _finished = finished;
+        }
+
+        @Override
+        String getMove() {
+            try {
+                String line = _script.take();
+                if (line == END) {
+                    _finished.countDown();
+                    return null;
+                }
+                return line;
+            } catch (InterruptedException excp) {
+                return null;
+            }
+        }
+
+        @Override
+        Player create(Piece side, Game game) {
+            return new ScriptPlayer(side, game, _script, _finished);
+        }
+
+        @Override
+        boolean isManual() {
+            return true;
+        }
+
+        /** The commands and moves to supply. */
+        private final LinkedBlockingQueue<String> _script;
+        /** Counted down when the script runs out, and so all of it has
+         *  been read. */
+        private final CountDownLatch _finished;
+    }
+
+    /** An automated player that plays the first legal move.  The players
+     *  a template creates share its latches and counts. */
+    private static class FirstMovePlayer extends Player {
+
+        /** A template player that moves only once RELEASE, unless it is
+         *  null, has counted down.  Cancelling a move counts it down. */
+        FirstMovePlayer(CountDownLatch release) {
+            super(null, null);
+            _template = this;
+            _release = release;
+        }
+
+        /** A player of SIDE in GAME created from TEMPLATE. */
+        FirstMovePlayer(Piece side, Game game, FirstMovePlayer template) {
+            super(side, game);
+            _template = template;
+            _release = template._release;
+        }
+
+        @Override
+        String getMove() {
+            _template._started.countDown();
+            if (_release != null) {
+                try {
+                    _release.await(TIMEOUT, TimeUnit.SECONDS);
+                } catch (InterruptedException excp) {
+                    /* Ignore. */
+                }
+            }
+            Move move = getBoard().legalMoves().get(0);
+            getGame().reportMove(move);
+            return move.toString();
+        }
+
+        @Override
+        void cancel() {
+            _template._cancelled.countDown();
+            if (_release != null) {
+                _release.countDown();
+            }
+        }
+
+        @Override
+        void positionChanged() {
+            _template._positionChanges.incrementAndGet();
+        }
+
+        @Override
+        void dispose() {
+            _template._disposals.incrementAndGet();
+        }
+
+        @Override
+        Player create(Piece side, Game game) {
+            return new FirstMovePlayer(side, game, _template);
+        }
+
+        @Override
+        boolean isManual() {
+            return false;
+        }
+
+        /** The template I was created from (myself, for a template). */
+        private final FirstMovePlayer _template;
+        /** Counted down when moves may be made, or null if they need not
+         *  wait. */
+        private final CountDownLatch _release;
+        /** Counted down when a move starts. */
+        private final CountDownLatch _started = new CountDownLatch(1);
+        /** Counted down when a move is cancelled. */
+        private final CountDownLatch _cancelled = new CountDownLatch(1);
+        /** Number of calls of positionChanged. */
+        private final AtomicInteger _positionChanges = new AtomicInteger();
+        /** Number of calls of dispose. */
+        private final AtomicInteger _disposals = new AtomicInteger();
+    }
+
+    /** A Reporter that records moves and notes. */
+    private static class RecordingReporter implements Reporter {
+
+        @Override
+        public void reportError(String format, Object... args) {
+            fail(String.format(format, args));
+        }
+
+        @Override
+        public void reportNote(String format, Object... args) {
+            _notes.add(String.format(format, args));
+        }
+
+        @Override
+        public void reportMove(Move move) {
+            _moves.add(move);
+        }
+
+        /** The notes reported. */
+        private final List<String> _notes =
+            Collections.synchronizedList(new ArrayList<>());
+        /** The moves reported. */
+        private final List<Move> _moves =
+            Collections.synchronizedList(new ArrayList<>());
+    }
+
+    /** Marks the end of a script (compared by identity). */
+    private static final String END = new String();
+    /** Seconds to wait for the game to respond. */
+    private static final long TIMEOUT = 10;
+
+}
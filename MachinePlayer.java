@@ -1,29 +1,121 @@
 /* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
  * University of California.  All rights reserved. */
 package loa;
-import static loa.Piece.*;
+
+import java.util.List;
 import java.util.Random;
 
-/** An automated Player.
+/** An automated Player.  By default, it searches with one or more
+ *  Searchers, one per thread, all sharing one transposition table ("lazy
+ *  SMP").  The first searcher manages the time and decides the move; the
+ *  others search the same position, starting at staggered depths, only
+ *  to fill the table with results the first can use.  Alternatively, it
+ *  may divide one search among its threads with a YoungBrothersSearcher.
+ *
+ *  If asked to ponder, it goes on searching after choosing each move, in
+ *  a background thread, from the position after the reply it expects.
+ *  If that reply is made, the ponder search becomes the search for my
+ *  next move, and has a head start of however long my opponent took.
+ *  Otherwise it is stopped, and its results survive only in the
+ *  transposition table.
+ *
+ *  Given an OpeningBook, it plays the book's moves, without searching,
+ *  for as long as the book has any for the position.
+ *
+ *  Late in the game (see solve), it first spends up to a quarter of
+ *  its budget trying to prove a forced win with a ProofNumberSolver,
+ *  and plays the first move of any win it proves.
+ *  Given a Tablebase, its searches take the results of positions with
+ *  few enough pieces from it.
+ *
+ *  Every part of the search checks, once every thousand or so nodes,
+ *  both a hard deadline and whether cancel has been called, and so a
+ *  move can be cut short at any time with the best move found so far.
  *  @author Devyanshi Agarwal
  */
 class MachinePlayer extends Player {
 
-    /** A position-score magnitude indicating a win (for white if positive,
-     *  black if negative). */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
-    /** A magnitude greater than a normal value. */
-    private static final int INFTY = Integer.MAX_VALUE;
+    /** Total thinking time allowed to one player over a game that runs
+     *  to the move limit, in milliseconds. */
+    static final long GAME_TIME = 60 * Game.MILLISEC;
+    /** Least time to allow for any one move, in milliseconds. */
+    static final long MIN_MOVE_TIME = 50;
+
+    /** Least value of my last search at which I try to prove a forced
+     *  win before searching, even if I cannot connect in one move. */
+    static final int SOLVER_VALUE = 300;
+    /** Greatest number of positions the solver expands for one move. */
+    static final long SOLVER_NODES = 200000;
+    /** Reciprocal of the share of a move's time budget the solver may
+     *  use. */
+    static final int SOLVER_SHARE = 4;
+
+    /** Default size of the transposition table, in megabytes. */
+    static final int DEFAULT_HASH_SIZE = 16;
+    /** Default number of search threads. */
+    static final int DEFAULT_THREADS = 1;
 
     /** A new MachinePlayer with no piece or controller (intended to produce
      *  a template). */
     MachinePlayer() {
-        this(null, null);
+        this(DEFAULT_HASH_SIZE, DEFAULT_THREADS, false, false, null, null);
+    }
+
+    /** A new MachinePlayer with no piece or controller (intended to produce
+     *  a template) whose products use a transposition table of HASHSIZE
+     *  megabytes and search in THREADS threads, dividing each search
+     *  among them by Young Brothers Wait iff YOUNGBROTHERS, ponder iff
+     *  PONDER, and take opening moves from BOOK and endgame results from
+     *  TABLEBASE, where these are not null. */
+    MachinePlayer(int hashSize, int threads, boolean youngBrothers,
+                  boolean ponder, OpeningBook book, Tablebase tablebase) {
+        this(null, null, hashSize, threads, youngBrothers, ponder, book,
+             tablebase, new WeightedEvaluator());
     }
 
     /** A MachinePlayer that plays the SIDE pieces in GAME. */
     MachinePlayer(Piece side, Game game) {
+        this(side, game, DEFAULT_HASH_SIZE, DEFAULT_THREADS, false, false,
+             null, null, new WeightedEvaluator());
+    }
+
+    /** A MachinePlayer that plays the SIDE pieces in GAME, using a
+     *  transposition table of HASHSIZE megabytes, searching in THREADS
+     *  threads (by Young Brothers Wait iff YOUNGBROTHERS), pondering iff
+     *  PONDER, taking opening moves from BOOK and endgame results from
+     *  TABLEBASE (where these are not null), and scoring positions with
+     *  EVALUATOR. */
+    MachinePlayer(Piece side, Game game, int hashSize, int threads,
+                  boolean youngBrothers, boolean ponder, OpeningBook book,
+                  Tablebase tablebase, Evaluator evaluator) {
         super(side, game);
+        _hashSize = hashSize;
+        _threads = Math.max(1, threads);
+        _useYoungBrothers = youngBrothers;
+        _ponder = ponder;
+        _evaluator = evaluator;
+        _book = book;
+        _tablebase = tablebase;
+        _table = side == null ? null : new TranspositionTable(hashSize);
+        _ponderer = side == null || !ponder ? null
+            : new Searcher(_table, evaluator, tablebase);
+        _solver = side == null ? null
+            : new ProofNumberSolver(ProofNumberSolver.DEFAULT_TABLE_BITS);
+        if (side == null) {
+            _searchers = null;
+            _youngBrothers = null;
+        } else if (youngBrothers) {
+            _searchers = null;
+            _youngBrothers =
+                new YoungBrothersSearcher(_threads, _table, evaluator,
+                                          tablebase);
+        } else {
+            _youngBrothers = null;
+            _searchers = new Searcher[_threads];
+            for (int i = 0; i < _threads; i += 1) {
+                _searchers[i] = new Searcher(_table, evaluator, tablebase);
+            }
+        }
     }
 
     @Override
@@ -31,7 +123,6 @@ class MachinePlayer extends Player {
         Move choice;
 
         assert side() == getGame().getBoard().turn();
-        int depth;
         choice = searchForMove();
         getGame().reportMove(choice);
         return choice.toString();
@@ -39,7 +130,51 @@ class MachinePlayer extends Player {
 
     @Override
     Player create(Piece piece, Game game) {
-        return new loa.MachinePlayer(piece, game);
+        return new loa.MachinePlayer(piece, game, _hashSize, _threads,
+                                     _useYoungBrothers,
+                                     _ponder, _book, _tablebase,
+                                     _evaluator);
+    }
+
+    @Override
+    void moveMade(Move move) {
+        Board board = getBoard();
+        if (_ponderThread != null
+            && board.movesMade() >= _ponderBoard.movesMade()
+            && !isPonderHit(board)) {
+            _ponderer.stop();
+        }
+    }
+
+    @Override
+    void cancel() {
+        if (_searchers != null) {
+            for (Searcher searcher : _searchers) {
+                searcher.stop();
+            }
+        }
+        if (_youngBrothers != null) {
+            _youngBrothers.stop();
+        }
+        if (_ponderer != null) {
+            _ponderer.stop();
+        }
+        if (_solver != null) {
+            _solver.stop();
+        }
+    }
+
+    @Override
+    void positionChanged() {
+        stopPondering();
+    }
+
+    @Override
+    void dispose() {
+        stopPondering();
+        if (_youngBrothers != null) {
+            _youngBrothers.shutdown();
+        }
     }
 
     @Override
@@ -47,106 +182,269 @@ class MachinePlayer extends Player {
         return false;
     }
 
-    /** Return a move after searching the game tree to DEPTH>0 moves
-     *  from the current position. Assumes the game is not over. */
+    /** Return the reply to my last move whose position I am pondering,
+     *  or null if I am not pondering. */
+    Move ponderReply() {
+        if (_ponderThread == null || !_ponderThread.isAlive()) {
+            return null;
+        }
+        return _ponderBoard.lastMove();
+    }
+
+    /** Return the number of my moves chosen by continuing to ponder. */
+    int ponderHits() {
+        return _ponderHits;
+    }
+
+    /** Return a move after searching the game tree from the current
+     *  position to successively greater depths, until the time budget
+     *  for this move (see timeBudget) runs out.  The result is the move
+     *  chosen by the deepest iteration of the first searcher that
+     *  finished.  Assumes the game is not over. */
     private Move searchForMove() {
-        Board work = new Board(getBoard());
-        int value;
-        assert side() == work.turn();
-        _foundMove = null;
-        if (side() == WP) {
-            value = findMove(work, chooseDepth(), true, 1, -INFTY, INFTY);
-        } else {
-            value = findMove(work, chooseDepth(), true, -1, -INFTY, INFTY);
-        }
-        return _foundMove;
-    }
-
-    /** Find a move from position BOARD and return its value, recording
-     *  the move found in _foundMove iff SAVEMOVE. The move
-     *  should have maximal value or have value > BETA if SENSE==1,
-     *  and minimal value or value < ALPHA if SENSE==-1. Searches up to
-     *  DEPTH levels.  Searching at level 0 simply returns a static estimate
-     *  of the board value and does not set _foundMove. If the game is over
-     *  on BOARD, does not set _foundMove. */
-    private int findMove(Board board, int depth, boolean saveMove,
-                         int sense, int alpha, int beta) {
-        if (depth == 0 || board.gameOver()) {
-            return staticEval(board);
-        }
-        int bestscore = 0;
-        Move bestmove = null;
-        if (sense == 1) {
-            bestscore = alpha;
-            for (Move move : board.legalMoves()) {
-                Board newB = new Board();
-                newB.copyFrom(board);
-                newB.makeMove(move);
-                int tempScore = findMove(newB, depth - 1,
-                        false, -1, alpha, beta);
-                if (tempScore > bestscore) {
-                    bestmove = move;
-                    bestscore = tempScore;
-                    alpha = Math.max(alpha, bestscore);
-                    if (alpha >= beta) {
-                        break;
-                    }
-                }
+        Board board = getBoard();
+        assert side() == board.turn();
+        long start = System.currentTimeMillis();
+        if (board.movesMade() < 2) {
+            _timeUsed = 0;
+            _lastValue = 0;
+        }
+        long budget = timeBudget(board, _timeUsed);
+
+        Move best = finishPondering(board, start, budget);
+        _table.newSearch();
+        if (best != null) {
+            _ponderHits += 1;
+            Utils.debug(1, "ponder hit: %s", best);
+        } else if (_book != null) {
+            best = _book.lookup(board, _random);
+            if (best != null) {
+                Utils.debug(1, "book: %s", best);
             }
+        }
+        if (best == null) {
+            best = solve(board, start + budget / SOLVER_SHARE);
+        }
+        if (best == null && _youngBrothers != null) {
+            best = _youngBrothers.search(board, start + budget / 2,
+                                         start + budget);
+            _lastValue = _youngBrothers.bestValue();
+        } else if (best == null) {
+            best = searchInParallel(board, start, budget);
+        }
+        if (best == null) {
+            best = fallbackMove(board);
+        }
+        _timeUsed += System.currentTimeMillis() - start;
+        if (_ponderer != null) {
+            startPondering(board, best);
+        }
+        return best;
+    }
 
+    /** Return the first move of a forced win for the side on move on
+     *  BOARD, if my solver can prove one by DEADLINE (as from
+     *  System.currentTimeMillis).  Otherwise, return null.  The solver
+     *  is tried only late in the game: when that side might connect with
+     *  one move (see Board.mayConnect), or when my last search valued
+     *  my position at SOLVER_VALUE or more. */
+    private Move solve(Board board, long deadline) {
+        if (!board.mayConnect(board.turn()) && _lastValue < SOLVER_VALUE) {
+            return null;
+        }
+        List<Move> line = _solver.solve(board, SOLVER_NODES, deadline);
+        Utils.debug(1, "solver: %s (%d nodes)",
+                    line == null ? "no proof" : line, _solver.nodes());
+        return line == null ? null : line.get(0);
+    }
 
-        } else {
-            bestscore = beta;
-            for (Move move : board.legalMoves()) {
-                Board newB = new Board();
-                newB.copyFrom(board);
-                newB.makeMove(move);
-                int tempScore = findMove(newB, depth - 1,
-                        false, 1, alpha, beta);
-                if (tempScore < bestscore) {
-                    bestmove = move;
-                    bestscore = tempScore;
-                    beta = Math.min(beta, bestscore);
-                    if (alpha <= beta) {
-                        break;
-                    }
-                }
-            }
+    /** Return a move for BOARD when no search has finished an iteration
+     *  (because it was cancelled or ran out of time): the best move in the
+     *  transposition table, if it is legal, and otherwise any legal
+     *  move. */
+    private Move fallbackMove(Board board) {
+        int move = TranspositionTable.move(_table.probe(board.zobristKey()));
+        if (move != 0 && board.isLegal(Move.mv(move))) {
+            return Move.mv(move);
         }
+        return board.legalMoves().get(0);
+    }
 
-        if (saveMove) {
-            _foundMove = bestmove;
+    /** Return true iff BOARD is the position being pondered. */
+    private boolean isPonderHit(Board board) {
+        return board.movesMade() == _ponderBoard.movesMade()
+            && board.equals(_ponderBoard);
+    }
+
+    /** Start pondering the position after my move BEST on BOARD and the
+     *  reply to it that the transposition table suggests, if there is
+     *  one and the game would not be over. */
+    private void startPondering(Board board, Move best) {
+        _ponderBoard.copyFrom(board);
+        _ponderBoard.makeMove(best);
+        if (_ponderBoard.gameOver()) {
+            return;
+        }
+        int reply = TranspositionTable.move(
+            _table.probe(_ponderBoard.zobristKey()));
+        if (reply == 0 || !_ponderBoard.isLegal(Move.mv(reply))) {
+            return;
         }
-        return bestscore;
+        _ponderBoard.makeMove(reply);
+        if (_ponderBoard.gameOver()) {
+            return;
+        }
+        _ponderStart = System.currentTimeMillis();
+        _ponderer.setPosition(_ponderBoard);
+        _ponderer.setDeadlines(Long.MAX_VALUE, _ponderStart + GAME_TIME);
+        _ponderThread = new Thread(() -> _ponderer.search(1, false));
+        _ponderThread.setDaemon(true);
+        _ponderThread.start();
     }
 
-    /** Return a search depth for the current position. */
-    private int chooseDepth() {
-        return 3;
+    /** Stop any pondering.  If it was of BOARD, let it go on as the search
+     *  for my move, as if it had started on BOARD at START (as from
+     *  System.currentTimeMillis) with a budget of BUDGET milliseconds,
+     *  less the time it has already spent.  Return the move it chooses,
+     *  or null if there was no such search or it chose nothing. */
+    private Move finishPondering(Board board, long start, long budget) {
+        if (_ponderThread == null) {
+            return null;
+        }
+        boolean hit = isPonderHit(board);
+        if (hit) {
+            _ponderer.setDeadlines(Math.max(start, _ponderStart + budget / 2),
+                                   start + budget);
+        } else {
+            _ponderer.stop();
+        }
+        try {
+            _ponderThread.join();
+        } catch (InterruptedException excp) {
+            _ponderer.stop();
+            hit = false;
+        }
+        _ponderThread = null;
+        if (hit) {
+            _lastValue = _ponderer.bestValue();
+        }
+        return hit ? _ponderer.bestMove() : null;
     }
 
-    /** Returns a value for the BOARD passed in. */
-    private int staticEval(Board board) {
-        Random score = new Random();
-        int tmp = 0;
-        if (board.piecesContiguous(BP)) {
-            return -WINNING_VALUE;
+    /** Stop any pondering, and wait for it to end. */
+    private void stopPondering() {
+        if (_ponderThread == null) {
+            return;
         }
-        if (board.piecesContiguous(WP)) {
-            return WINNING_VALUE;
+        _ponderer.stop();
+        try {
+            _ponderThread.join();
+        } catch (InterruptedException excp) {
+            /* Ignore InterruptedException; the thread is a daemon. */
         }
-        if (board.getRegionSizes(BP).size()
-                > board.getRegionSizes(WP).size()) {
-            tmp += score.nextInt();
+        _ponderThread = null;
+    }
+
+    /** Return the move chosen by searching BOARD with my Searchers, as
+     *  for searchForMove, starting at START (as from
+     *  System.currentTimeMillis) and allowing BUDGET milliseconds.
+     *  Returns null if no iteration finished. */
+    private Move searchInParallel(Board board, long start, long budget) {
+        Thread[] helpers = new Thread[_threads - 1];
+        for (int i = 1; i < _threads; i += 1) {
+            Searcher helper = _searchers[i];
+            int firstDepth = 1 + i % 2;
+            helper.setPosition(board);
+            helper.setDeadlines(Long.MAX_VALUE, Long.MAX_VALUE);
+            helpers[i - 1] = new Thread(() ->
+                helper.search(firstDepth, false));
+            helpers[i - 1].setDaemon(true);
+            helpers[i - 1].start();
         }
-        if (board.getRegionSizes(BP).size()
-                < board.getRegionSizes(WP).size()) {
-            tmp -= score.nextInt();
+        Searcher main = _searchers[0];
+        main.setPosition(board);
+        main.setDeadlines(start + budget / 2, start + budget);
+        main.search(1, true);
+        _lastValue = main.bestValue();
+        long nodes = main.nodes();
+        for (int i = 1; i < _threads; i += 1) {
+            _searchers[i].stop();
+            try {
+                helpers[i - 1].join();
+            } catch (InterruptedException excp) {
+                continue;
+            }
+            nodes += _searchers[i].nodes();
         }
-        return tmp;
+        if (_threads > 1) {
+            Utils.debug(1, "%d threads: %d nodes", _threads, nodes);
+        }
+        return main.bestMove();
+    }
+
+    /** Return the time in milliseconds to allow for choosing a move on
+     *  BOARD, having used TIMEUSED milliseconds so far in the game: an even
+     *  share of what remains of GAME_TIME over the moves the side on move
+     *  has left before BOARD's move limit. */
+    static long timeBudget(Board board, long timeUsed) {
+        long movesLeft = Math.max(1, (board.movesRemaining() + 1) / 2);
+        long timeLeft = Math.max(0, GAME_TIME - timeUsed);
+        return Math.max(MIN_MOVE_TIME, timeLeft / movesLeft);
     }
 
-    /** Used to convey moves discovered by findMove. */
-    private Move _foundMove;
+    /** Size in megabytes of my transposition table. */
+    private final int _hashSize;
+
+    /** Number of threads to search in. */
+    private final int _threads;
+
+    /** Scores non-final positions for my searchers. */
+    private final Evaluator _evaluator;
+
+    /** Transposition table shared by my searchers (null in a template). */
+    private final TranspositionTable _table;
+
+    /** One searcher per thread (null in a template, or if I search by
+     *  Young Brothers Wait).  The first runs in the thread that calls
+     *  getMove. */
+    private final Searcher[] _searchers;
+
+    /** True iff I, and the players I create, search by Young Brothers
+     *  Wait. */
+    private final boolean _useYoungBrothers;
+
+    /** Searches for me by Young Brothers Wait, or null if I do not. */
+    private final YoungBrothersSearcher _youngBrothers;
+
+    /** Total time in milliseconds spent by searchForMove so far in the
+     *  current game. */
+    private long _timeUsed;
+    /** The value, for me, of the move chosen by my last search. */
+    private int _lastValue;
+
+    /** Supplies opening moves, or null if I have no book. */
+    private final OpeningBook _book;
+    /** Exact results of positions with few pieces, or null. */
+    private final Tablebase _tablebase;
+    /** Source of random choices among book moves. */
+    private final Random _random = new Random();
+
+    /** Proves wins near the end of the game (null in a template). */
+    private final ProofNumberSolver _solver;
+
+    /** True iff I ponder. */
+    private final boolean _ponder;
+    /** Searches while my opponent is on move (null in a template, or if
+     *  I do not ponder). */
+    private final Searcher _ponderer;
+    /** The thread running _ponderer, or null if it is not running. */
+    private Thread _ponderThread;
+    /** The position being pondered. */
+    private final Board _ponderBoard = new Board();
+    /** Time (as from System.currentTimeMillis) at which pondering
+     *  started. */
+    private long _ponderStart;
+    /** Number of my moves chosen by continuing to ponder. */
+    private int _ponderHits;
 
 }
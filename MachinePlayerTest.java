@@ -0,0 +1,126 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+
+/** Tests of pondering by the MachinePlayer class.  The boards have a
+ *  high move limit, so that each move's time budget is short.
+ *  @author Devyanshi Agarwal
+ */
+public class MachinePlayerTest {
+
+    /** Test that when the expected reply is made, the ponder search goes
+     *  on to choose my next move. */
+    @Test
+    public void testPonderHit() {
+        TestGame game = new TestGame();
+        MachinePlayer player = player(game);
+        Move reply = moveAndPonder(game, player);
+        assertNotNull("not pondering", reply);
+        makeMove(game, player, reply);
+        assertEquals("pondering stopped by hit", reply,
+                     player.ponderReply());
+        Move move = Move.mv(player.getMove());
+        assertTrue("illegal move", game.getBoard().isLegal(move));
+        assertEquals("ponder hits", 1, player.ponderHits());
+        player.dispose();
+    }
+
+    /** Test that any other reply stops pondering, and that its search is
+     *  not used for my next move. */
+    @Test
+    public void testPonderMiss() throws InterruptedException {
+        TestGame game = new TestGame();
+        MachinePlayer player = player(game);
+        Move expected = moveAndPonder(game, player);
+        assertNotNull("not pondering", expected);
+        Move reply = null;
+        for (Move move : game.getBoard().legalMoves()) {
+            if (!move.equals(expected)) {
+                reply = move;
+                break;
+            }
+        }
+        makeMove(game, player, reply);
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (player.ponderReply() != null
+               && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertNull("pondering not stopped by miss", player.ponderReply());
+        Move move = Move.mv(player.getMove());
+        assertTrue("illegal move", game.getBoard().isLegal(move));
+        assertEquals("ponder hits", 0, player.ponderHits());
+        player.dispose();
+    }
+
+    /** Test that a change of position other than by a move, and the
+     *  player's replacement, each stop pondering at once. */
+    @Test
+    public void testPonderingStopped() {
+        TestGame game = new TestGame();
+        MachinePlayer player = player(game);
+        assertNotNull("not pondering", moveAndPonder(game, player));
+        player.positionChanged();
+        assertNull("pondering not stopped by position change",
+                   player.ponderReply());
+        game.getBoard().retract();
+        assertNotNull("not pondering", moveAndPonder(game, player));
+        player.dispose();
+        assertNull("pondering not stopped by disposal",
+                   player.ponderReply());
+    }
+
+    /** Return a pondering player of black in GAME. */
+    private static MachinePlayer player(Game game) {
+        return new MachinePlayer(BP, game, 1, 1, false, true, null, null,
+                                 new WeightedEvaluator());
+    }
+
+    /** Have PLAYER choose and make a move in GAME, and return the reply
+     *  it then ponders, or null if it does not. */
+    private static Move moveAndPonder(Game game, MachinePlayer player) {
+        makeMove(game, player, Move.mv(player.getMove()));
+        return player.ponderReply();
+    }
+
+    /** Make MOVE in GAME, telling PLAYER. */
+    private static void makeMove(Game game, Player player, Move move) {
+        game.getBoard().makeMove(move);
+        player.moveMade(move);
+    }
+
+    /** A Game whose board is set up without playing, and that reports
+     *  nothing. */
+    private static class TestGame extends Game {
+
+        /** A new game at the initial position, with a high move limit. */
+        TestGame() {
+            super(new NullView(), null, new TextReporter(),
+                  new HumanPlayer(), new HumanPlayer(), false, 1);
+            _board.setMoveLimit(MOVE_LIMIT);
+        }
+
+        @Override
+        Board getBoard() {
+            return _board;
+        }
+
+        @Override
+        void reportMove(Move move) {
+        }
+
+        /** The game board. */
+        private final Board _board = new Board();
+    }
+
+    /** Move limit for the test boards. */
+    private static final int MOVE_LIMIT = 1000;
+    /** Milliseconds to wait for pondering to stop. */
+    private static final long TIMEOUT = 10000;
+
+}
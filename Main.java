@@ -36,7 +36,12 @@ public class Main {
     public static void main(String... args) {
         CommandArgs options =
             new CommandArgs("--debug=(\\d+){0,1} --display{0,1} --strict{0,1} "
-                            + "--log={0,1} --=(.*){0,2}",
+                            + "--log={0,1} --hash=(\\d+){0,1} "
+                            + "--threads=(\\d+){0,1} --ybw{0,1} --ponder{0,1} "
+                            + "--book=(.+){0,1} "
+                            + "--make-book=(.+){0,1} --tablebases=(.+){0,1} "
+                            + "--make-tablebases=(.+){0,1} "
+                            + "--tb-pieces=(\\d+){0,1} --=(.*){0,2}",
                             args);
 
         if (!options.ok()) {
@@ -49,6 +54,15 @@ public class Main {
             setMessageLevel(options.getInt("--debug"));
         }
 
+        if (options.contains("--make-book")) {
+            makeBook(options);
+            System.exit(0);
+        }
+        if (options.contains("--make-tablebases")) {
+            makeTablebases(options);
+            System.exit(0);
+        }
+
         List<String> files = options.get("--");
         if (!files.isEmpty()) {
             try {
@@ -110,8 +124,86 @@ public class Main {
             }
         }
 
+        int hashSize = MachinePlayer.DEFAULT_HASH_SIZE;
+        if (options.contains("--hash")) {
+            hashSize = options.getInt("--hash");
+        }
+        int threads = MachinePlayer.DEFAULT_THREADS;
+        if (options.contains("--threads")) {
+            threads = options.getInt("--threads");
+        }
+
+        OpeningBook book = null;
+        if (options.contains("--book")) {
+            try {
+                book = new OpeningBook(options.getFirst("--book"));
+            } catch (IOException excp) {
+                error(1, "Could not open opening book: %s%n",
+                      excp.getMessage());
+            }
+        }
+
+        Tablebase tablebase = null;
+        if (options.contains("--tablebases")) {
+            try {
+                tablebase = new Tablebase(options.getFirst("--tablebases"),
+                                          tablebasePieces(options));
+            } catch (IOException | IllegalArgumentException excp) {
+                error(1, "Could not open tablebases: %s%n",
+                      excp.getMessage());
+            }
+        }
+
         return new Game(view, log, reporter, manualPlayer,
-                        new MachinePlayer(), options.contains("--strict"));
+                        new MachinePlayer(hashSize, threads,
+                                          options.contains("--ybw"),
+                                          options.contains("--ponder"),
+                                          book, tablebase),
+                        options.contains("--strict"), hashSize);
+    }
+
+    /** Write the opening book named by the --make-book option in
+     *  OPTIONS, using a transposition table of the size given by --hash,
+     *  if present. */
+    private static void makeBook(CommandArgs options) {
+        int hashSize = MachinePlayer.DEFAULT_HASH_SIZE;
+        if (options.contains("--hash")) {
+            hashSize = options.getInt("--hash");
+        }
+        String name = options.getFirst("--make-book");
+        try {
+            int records = OpeningBook.write(name, OpeningBook.DEFAULT_MOVES,
+                                            OpeningBook.DEFAULT_DEPTH,
+                                            hashSize);
+            System.out.printf("Wrote %d book moves to %s.%n", records, name);
+        } catch (IOException excp) {
+            error(1, "Could not write opening book: %s%n", excp.getMessage());
+        }
+    }
+
+    /** Write the tablebases for the number of pieces given by OPTIONS to
+     *  the directory named by its --make-tablebases option, using the
+     *  number of threads given by --threads, if present. */
+    private static void makeTablebases(CommandArgs options) {
+        int threads = MachinePlayer.DEFAULT_THREADS;
+        if (options.contains("--threads")) {
+            threads = options.getInt("--threads");
+        }
+        String directory = options.getFirst("--make-tablebases");
+        try {
+            Tablebase.generate(directory, tablebasePieces(options), threads);
+        } catch (IOException | IllegalArgumentException excp) {
+            error(1, "Could not make tablebases: %s%n", excp.getMessage());
+        }
+    }
+
+    /** Return the greatest number of pieces per side in tablebases, as
+     *  given by the --tb-pieces option in OPTIONS, if present. */
+    private static int tablebasePieces(CommandArgs options) {
+        if (options.contains("--tb-pieces")) {
+            return options.getInt("--tb-pieces");
+        }
+        return Tablebase.DEFAULT_PIECES;
     }
 
     /** Print brief description of the command-line format. */
@@ -51,6 +51,17 @@ final class Move {
         return mv(from, to, false);
     }
 
+    /** Return the move whose code() is CODE.  If CAPTURE is true,
+     *  indicates a move that captures a piece. */
+    static loa.Move mv(int code, boolean capture) {
+        return _moves[code >> 6][code & 63][capture ? 1 : 0];
+    }
+
+    /** Return the move (with isCapture() false) whose code() is CODE. */
+    static loa.Move mv(int code) {
+        return mv(code, false);
+    }
+
     /** Return the Square moved from. */
     Square getFrom() {
         return _from;
@@ -71,6 +82,13 @@ final class Move {
         return _captureMove;
     }
 
+    /** Return a compact encoding of my starting and destination squares
+     *  (but not isCapture()): 64 * getFrom().index() + getTo().index().
+     *  No valid move has code 0. */
+    int code() {
+        return (_from.index() << 6) | _to.index();
+    }
+
     /** Return the length of this move (number of squares moved). */
     int length() {
         return _from.distance(_to);
@@ -0,0 +1,143 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+/** Decides the order in which a search tries the moves at each node.
+ *  Moves are ranked, best first, as: the move suggested by the
+ *  transposition table; captures; the two killer moves for the current
+ *  ply (quiet moves that recently caused cutoffs at that ply); the
+ *  counter-move to the opponent's last move (the quiet reply that last
+ *  refuted it); and then all other moves by their history scores (how
+ *  often and how deep each from-to pair has caused cutoffs).  Captures
+ *  are also ordered among themselves by history.
+ *  @author Devyanshi Agarwal
+ */
+class MoveOrderer {
+
+    /** An orderer for searches of up to MAXPLY plies. */
+    MoveOrderer(int maxPly) {
+        _killers = new int[maxPly + 1][2];
+        _scores = new int[maxPly + 1][Board.MAX_MOVES];
+    }
+
+    /** Forget the killer moves and halve the history scores, as at the
+     *  start of a new search. */
+    void newSearch() {
+        for (int[] killers : _killers) {
+            Arrays.fill(killers, 0);
+        }
+        for (int i = 0; i < _history.length; i += 1) {
+            _history[i] /= 2;
+        }
+    }
+
+    /** Forget all killer moves, counter-moves, and history scores. */
+    void clear() {
+        for (int[] killers : _killers) {
+            Arrays.fill(killers, 0);
+        }
+        Arrays.fill(_history, 0);
+        Arrays.fill(_counterMoves, 0);
+    }
+
+    /** Prepare to hand out the N moves in MOVES, generated at PLY on
+     *  BOARD, in order, with HASHMOVE (0 if none) first if present. */
+    void score(Board board, int[] moves, int n, int ply, int hashMove) {
+        int[] scores = _scores[ply];
+        int[] killers = _killers[ply];
+        long occupied = board.occupied();
+        Move last = board.lastMove();
+        int counter = last == null ? 0 : _counterMoves[last.code()];
+        for (int i = 0; i < n; i += 1) {
+            int move = moves[i];
+            if (move == hashMove) {
+                scores[i] = HASH_RANK;
+            } else if ((occupied & (1L << (move & 63))) != 0) {
+                scores[i] = CAPTURE_RANK + _history[move];
+            } else if (move == killers[0]) {
+                scores[i] = KILLER_RANK + 1;
+            } else if (move == killers[1]) {
+                scores[i] = KILLER_RANK;
+            } else if (move == counter) {
+                scores[i] = COUNTER_RANK;
+            } else {
+                scores[i] = _history[move];
+            }
+        }
+    }
+
+    /** Assuming that score has been called for the N moves in MOVES at
+     *  PLY, and that MOVES[0 .. I-1] have been handed out, move the best
+     *  of the rest to MOVES[I] and return it. */
+    int next(int[] moves, int i, int n, int ply) {
+        int[] scores = _scores[ply];
+        int best = i;
+        for (int j = i + 1; j < n; j += 1) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        int move = moves[best], score = scores[best];
+        moves[best] = moves[i];
+        scores[best] = scores[i];
+        moves[i] = move;
+        scores[i] = score;
+        return move;
+    }
+
+    /** Return true iff the move handed out by next as MOVES[I] at PLY
+     *  is quiet: neither the hash move, a capture, a killer, nor the
+     *  counter-move. */
+    boolean quiet(int ply, int i) {
+        return _scores[ply][i] < COUNTER_RANK;
+    }
+
+    /** Record that MOVE caused a cutoff in a search to DEPTH at PLY on
+     *  BOARD (before MOVE is made). */
+    void cutoff(Board board, int move, int ply, int depth) {
+        _history[move] += depth * depth;
+        if (_history[move] > HISTORY_LIMIT) {
+            for (int i = 0; i < _history.length; i += 1) {
+                _history[i] /= 2;
+            }
+        }
+        if ((board.occupied() & (1L << (move & 63))) != 0) {
+            return;
+        }
+        int[] killers = _killers[ply];
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+        Move last = board.lastMove();
+        if (last != null) {
+            _counterMoves[last.code()] = move;
+        }
+    }
+
+    /** Ranks given to the hash move, captures, killer moves, and the
+     *  counter-move.  Other moves rank by history scores, which are kept
+     *  below HISTORY_LIMIT. */
+    private static final int
+        HASH_RANK = 1 << 30,
+        CAPTURE_RANK = 1 << 29,
+        KILLER_RANK = 1 << 28,
+        COUNTER_RANK = KILLER_RANK - 1,
+        HISTORY_LIMIT = 1 << 24;
+
+    /** Number of distinct move codes. */
+    private static final int NUM_CODES = 1 << 12;
+
+    /** Two killer moves per ply, most recent first (0 if none). */
+    private final int[][] _killers;
+    /** Ordering scores for the moves being handed out at each ply. */
+    private final int[][] _scores;
+    /** History scores, indexed by move code. */
+    private final int[] _history = new int[NUM_CODES];
+    /** The last quiet move to cause a cutoff in reply to each move,
+     *  indexed by the code of the move replied to. */
+    private final int[] _counterMoves = new int[NUM_CODES];
+
+}
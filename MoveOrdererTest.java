@@ -0,0 +1,131 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+import static loa.Move.mv;
+
+/** Tests of the MoveOrderer class.
+ *  @author Devyanshi Agarwal
+ */
+public class MoveOrdererTest {
+
+    @Test
+    public void testHashMoveFirst() {
+        Board board = new Board();
+        int[] moves = moves(board);
+        int hash = moves[moves.length - 1];
+        MoveOrderer orderer = new MoveOrderer(MAX_PLY);
+        assertEquals("hash move", hash, order(orderer, board, 0, hash)[0]);
+        assertFalse("hash move quiet", orderer.quiet(0, 0));
+    }
+
+    /** Test that killers come first among quiet moves at their own ply,
+     *  most recent first, and that elsewhere quiet moves rank by
+     *  history. */
+    @Test
+    public void testKillersAndHistory() {
+        Board board = new Board();
+        int[] moves = quietMoves(board);
+        int captures = moves(board).length - moves.length;
+        int deep = moves[3], shallow = moves[5];
+        MoveOrderer orderer = new MoveOrderer(MAX_PLY);
+        orderer.cutoff(board, deep, 2, 5);
+        orderer.cutoff(board, shallow, 2, 1);
+        int[] order = order(orderer, board, 2, 0);
+        assertEquals("latest killer", shallow, order[captures]);
+        assertEquals("older killer", deep, order[captures + 1]);
+        assertFalse("killer quiet", orderer.quiet(2, captures));
+        assertTrue("other move not quiet", orderer.quiet(2, captures + 2));
+        order = order(orderer, board, 3, 0);
+        assertEquals("greater history", deep, order[captures]);
+        assertEquals("lesser history", shallow, order[captures + 1]);
+        assertTrue("history move not quiet", orderer.quiet(3, captures));
+        orderer.newSearch();
+        order = order(orderer, board, 2, 0);
+        assertEquals("history after new search", deep, order[captures]);
+        assertTrue("killer not forgotten", orderer.quiet(2, captures));
+    }
+
+    /** Test that the counter-move to the last move comes before quiet
+     *  moves ranked only by history. */
+    @Test
+    public void testCounterMove() {
+        Board start = new Board();
+        Board board = new Board();
+        board.makeMove(mv("b1-b3"));
+        int[] moves = quietMoves(board);
+        int captures = moves(board).length - moves.length;
+        int counter = moves[0], other = moves[1];
+        MoveOrderer orderer = new MoveOrderer(MAX_PLY);
+        orderer.cutoff(start, other, 5, 10);
+        orderer.cutoff(board, counter, 1, 1);
+        int[] order = order(orderer, board, 4, 0);
+        assertEquals("counter-move", counter, order[captures]);
+        assertEquals("history move", other, order[captures + 1]);
+        assertFalse("counter-move quiet", orderer.quiet(4, captures));
+        assertTrue("history move not quiet", orderer.quiet(4, captures + 1));
+    }
+
+    /** Test that captures come before killers. */
+    @Test
+    public void testCapturesFirst() {
+        Board board = new Board(ProofNumberSolverTest.WIN_IN_7, WP);
+        int[] moves = moves(board);
+        int captures = 0, quiet = 0;
+        for (int move : moves) {
+            if (isCapture(board, move)) {
+                captures += 1;
+            } else {
+                quiet = move;
+            }
+        }
+        assertTrue("no captures", captures > 0);
+        MoveOrderer orderer = new MoveOrderer(MAX_PLY);
+        orderer.cutoff(board, quiet, 1, 10);
+        int[] order = order(orderer, board, 1, 0);
+        for (int i = 0; i < captures; i += 1) {
+            assertTrue("capture " + i, isCapture(board, order[i]));
+        }
+        assertEquals("killer after captures", quiet, order[captures]);
+    }
+
+    /** Return the codes of the legal moves on BOARD. */
+    private static int[] moves(Board board) {
+        int[] moves = new int[Board.MAX_MOVES];
+        return Arrays.copyOf(moves, board.generateMoves(moves));
+    }
+
+    /** Return the codes of the legal moves on BOARD that are not
+     *  captures. */
+    private static int[] quietMoves(Board board) {
+        return Arrays.stream(moves(board))
+            .filter(move -> !isCapture(board, move)).toArray();
+    }
+
+    /** Return the legal moves on BOARD at PLY in the order handed out by
+     *  ORDERER, with HASHMOVE (0 if none) as the hash move. */
+    private static int[] order(MoveOrderer orderer, Board board, int ply,
+                               int hashMove) {
+        int[] moves = moves(board);
+        orderer.score(board, moves, moves.length, ply, hashMove);
+        for (int i = 0; i < moves.length; i += 1) {
+            orderer.next(moves, i, moves.length, ply);
+        }
+        return moves;
+    }
+
+    /** Return true iff MOVE on BOARD is a capture. */
+    private static boolean isCapture(Board board, int move) {
+        return (board.occupied() & (1L << (move & 63))) != 0;
+    }
+
+    /** Greatest ply used by these tests. */
+    private static final int MAX_PLY = 8;
+
+}
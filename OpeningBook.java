@@ -0,0 +1,270 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import static loa.Board.MAX_MOVES;
+import static loa.Searcher.INFTY;
+
+/** A book of opening moves, read from a file.  The file holds a header
+ *  followed by fixed-size records, each giving a position key (see
+ *  Board.zobristKey), the code of a good move from that position, a
+ *  weight, and the move's score from the search that chose it.  Records
+ *  are sorted by key, so that the moves for a position are found by
+ *  binary search.  The file is mapped read-only into memory rather than
+ *  read, so that it costs nothing to open and several programs on one
+ *  host share a single copy.
+ *
+ *  Books are made offline by write, which searches every move from each
+ *  position to a fixed depth and records up to WIDTH of those within
+ *  MARGIN of the best, weighting each by how close it comes.
+ *  Each side's positions are those reached when it plays book moves and
+ *  its opponent plays anything.
+ *  @author Devyanshi Agarwal
+ */
+class OpeningBook {
+
+    /** Default number of moves by each side covered by a new book. */
+    static final int DEFAULT_MOVES = 2;
+    /** Default depth to which write searches each move. */
+    static final int DEFAULT_DEPTH = 5;
+    /** Greatest amount by which the score of a recorded move may fall
+     *  short of the best move's. */
+    static final int MARGIN = 20;
+    /** Greatest number of moves recorded for one position. */
+    static final int WIDTH = 3;
+
+    /** Size in bytes of the header. */
+    static final int HEADER_SIZE = Long.BYTES;
+    /** Size in bytes of one record: key (8 bytes), move code (2), weight
+     *  (2), and score (4). */
+    static final int RECORD_SIZE = 16;
+
+    /** A book read from the file named FILENAME.  Throws IOException if
+     *  the file cannot be mapped or is not a book. */
+    OpeningBook(String fileName) throws IOException {
+        try (FileChannel channel =
+             FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE
+                || (size - HEADER_SIZE) % RECORD_SIZE != 0) {
+                throw new IOException("not an opening book: " + fileName);
+            }
+            _records = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (_records.getLong(0) != MAGIC) {
+            throw new IOException("not an opening book: " + fileName);
+        }
+        _size = (_records.capacity() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    /** Return the number of records in this book. */
+    int size() {
+        return _size;
+    }
+
+    /** Return a move from this book for BOARD, chosen at random using
+     *  RANDOM with probability proportional to its weight, or null if
+     *  the book has no legal move for BOARD. */
+    Move lookup(Board board, Random random) {
+        long key = board.zobristKey();
+        int first = find(key);
+        int total = 0, end;
+        for (end = first; end < _size && key(end) == key; end += 1) {
+            if (board.isLegal(Move.mv(move(end)))) {
+                total += weight(end);
+            }
+        }
+        if (total == 0) {
+            return null;
+        }
+        int choice = random.nextInt(total);
+        for (int r = first; r < end; r += 1) {
+            if (board.isLegal(Move.mv(move(r)))) {
+                choice -= weight(r);
+                if (choice < 0) {
+                    return Move.mv(move(r));
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Return the index of the first record whose key is at least KEY,
+     *  or size() if there is none. */
+    private int find(long key) {
+        int lo = 0, hi = _size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (key(mid) < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Return the key of record R. */
+    private long key(int r) {
+        return _records.getLong(HEADER_SIZE + r * RECORD_SIZE);
+    }
+
+    /** Return the move code of record R. */
+    private int move(int r) {
+        return _records.getShort(HEADER_SIZE + r * RECORD_SIZE + 8)
+            & 0xffff;
+    }
+
+    /** Return the weight of record R. */
+    private int weight(int r) {
+        return _records.getShort(HEADER_SIZE + r * RECORD_SIZE + 10)
+            & 0xffff;
+    }
+
+    /** Write a book to the file named FILENAME covering the first MOVES
+     *  moves of each side from the initial position, searching each
+     *  candidate move to DEPTH with a transposition table of HASHSIZE
+     *  megabytes.  Return the number of records written. */
+    static int write(String fileName, int moves, int depth, int hashSize)
+        throws IOException {
+        Writer writer = new Writer(depth, hashSize);
+        writer.expand(new Board(), Piece.BP, moves);
+        writer.expand(new Board(), Piece.WP, moves);
+        long[][] records = writer.records();
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeLong(MAGIC);
+            for (long[] record : records) {
+                out.writeLong(record[0]);
+                out.writeShort((int) record[1]);
+                out.writeShort((int) record[2]);
+                out.writeInt((int) record[3]);
+            }
+        }
+        return records.length;
+    }
+
+    /** Collects the records of a new book. */
+    private static class Writer {
+
+        /** A writer that searches candidate moves to DEPTH with a
+         *  transposition table of HASHSIZE megabytes. */
+        Writer(int depth, int hashSize) {
+            _depth = Math.max(1, depth);
+            _searcher = new Searcher(new TranspositionTable(hashSize),
+                                     new WeightedEvaluator());
+        }
+
+        /** Record moves for SIDE in BOARD and all positions reached from
+         *  it in which SIDE has made at most MOVES more book moves and
+         *  its opponent any moves.  BOARD is unchanged. */
+        void expand(Board board, Piece side, int moves) {
+            if (moves == 0 || board.gameOver()) {
+                return;
+            }
+            int[] next;
+            int n;
+            if (board.turn() == side) {
+                next = analyze(board);
+                n = next.length;
+                moves -= 1;
+            } else {
+                next = new int[MAX_MOVES];
+                n = board.generateMoves(next);
+            }
+            for (int i = 0; i < n; i += 1) {
+                board.makeMove(next[i]);
+                expand(board, side, moves);
+                board.retract();
+            }
+        }
+
+        /** Search every move from BOARD, record the best WIDTH of those
+         *  within MARGIN of the best, and return their codes.  A position
+         *  already analyzed is not searched again. */
+        private int[] analyze(Board board) {
+            long key = board.zobristKey();
+            int[] chosen = _analyzed.get(key);
+            if (chosen != null) {
+                return chosen;
+            }
+            int[] moves = new int[MAX_MOVES];
+            int[] scores = new int[MAX_MOVES];
+            int n = board.generateMoves(moves);
+            int best = -INFTY;
+            for (int i = 0; i < n; i += 1) {
+                board.makeMove(moves[i]);
+                scores[i] = -_searcher.searchSubtree(board, 1, _depth - 1,
+                                                     -INFTY, INFTY,
+                                                     Long.MAX_VALUE);
+                board.retract();
+                best = Math.max(best, scores[i]);
+            }
+            int k;
+            for (k = 0; k < WIDTH && k < n; k += 1) {
+                int j = k;
+                for (int i = k + 1; i < n; i += 1) {
+                    if (scores[i] > scores[j]) {
+                        j = i;
+                    }
+                }
+                if (scores[j] < best - MARGIN) {
+                    break;
+                }
+                int move = moves[j], score = scores[j];
+                moves[j] = moves[k];
+                scores[j] = scores[k];
+                moves[k] = move;
+                scores[k] = score;
+                _records.add(new long[] {
+                    key, move, MARGIN + 1 - (best - score), score
+                });
+            }
+            chosen = Arrays.copyOf(moves, k);
+            _analyzed.put(key, chosen);
+            Utils.debug(1, "book: %d positions, %d records",
+                        _analyzed.size(), _records.size());
+            return chosen;
+        }
+
+        /** Return the records collected, sorted by key. */
+        long[][] records() {
+            long[][] result = _records.toArray(new long[0][]);
+            Arrays.sort(result, (r0, r1) -> Long.compare(r0[0], r1[0]));
+            return result;
+        }
+
+        /** Depth to which moves are searched. */
+        private final int _depth;
+        /** Searches candidate moves. */
+        private final Searcher _searcher;
+        /** Records collected so far, each an array of key, move code,
+         *  weight, and score. */
+        private final ArrayList<long[]> _records = new ArrayList<>();
+        /** Codes of the moves recorded for each position analyzed, by
+         *  key. */
+        private final HashMap<Long, int[]> _analyzed = new HashMap<>();
+    }
+
+    /** First word of every book file ("LOABOOK1"). */
+    private static final long MAGIC = 0x4c4f41424f4f4b31L;
+
+    /** The contents of the file. */
+    private final MappedByteBuffer _records;
+    /** Number of records in the file. */
+    private final int _size;
+
+}
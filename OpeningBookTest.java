@@ -0,0 +1,54 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Move.mv;
+
+/** Tests of the OpeningBook class.
+ *  @author Devyanshi Agarwal
+ */
+public class OpeningBookTest {
+
+    @Test
+    public void testOpeningBook() throws IOException {
+        File file = File.createTempFile("book", ".bin");
+        file.deleteOnExit();
+        int records = OpeningBook.write(file.getPath(), 1, 1, 1);
+        OpeningBook book = new OpeningBook(file.getPath());
+        assertEquals("records read", records, book.size());
+        Random random = new Random(0);
+        Board b = new Board();
+        Move move = book.lookup(b, random);
+        assertNotNull("book move for initial position", move);
+        assertTrue("book move legal", b.isLegal(move));
+        b.makeMove(mv("b1-b3"));
+        assertNotNull("book reply for white", book.lookup(b, random));
+        b.makeMove(mv("a2-c2"));
+        assertNull("no book move after book ends", book.lookup(b, random));
+    }
+
+    @Test
+    public void testNotABook() throws IOException {
+        File file = File.createTempFile("book", ".bin");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[OpeningBook.HEADER_SIZE
+                                + OpeningBook.RECORD_SIZE]);
+        }
+        try {
+            new OpeningBook(file.getPath());
+            fail("read a file that is not a book");
+        } catch (IOException excp) {
+            /* Expected. */
+        }
+    }
+
+}
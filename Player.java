@@ -34,6 +34,28 @@ public abstract class Player {
         return _game;
     }
 
+    /** Notify me that MOVE has just been made on getBoard(), by either
+     *  side.  By default, does nothing. */
+    void moveMade(Move move) {
+    }
+
+    /** Ask a call of getMove now in progress, in another thread, to
+     *  return as soon as it can, with the best move it has found so far.
+     *  Has no effect on later calls.  By default, does nothing. */
+    void cancel() {
+    }
+
+    /** Called when the position has changed other than by a move, as by
+     *  undo, new, or set.  By default, does nothing. */
+    void positionChanged() {
+    }
+
+    /** Called when I am replaced by another player and will make no more
+     *  moves, so that I can release any threads I hold.  By default, does
+     *  nothing. */
+    void dispose() {
+    }
+
     /** Return true iff I am a manual (human or non-automated) player. */
     abstract boolean isManual();
 
@@ -0,0 +1,272 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static loa.Board.MAX_MOVES;
+
+/** A depth-first proof-number ("df-pn") solver, which tries to prove that
+ *  the side on move in some position can force a win.  Each position
+ *  has a proof number, the least number of unsolved positions that would
+ *  have to be proven wins to prove it a win, and a disproof number, the
+ *  same for showing that it is not one.  The solver always expands a
+ *  "most-proving" position, below the current node, within thresholds
+ *  on both numbers, and backs the numbers up only when a threshold is
+ *  reached, so that it needs memory only for its table.  Ties and the
+ *  opponent's wins both count as failures to prove.
+ *
+ *  Proof and disproof numbers are kept in a fixed-size table indexed by
+ *  position key and the number of moves left before the move limit (so
+ *  that the same arrangement of pieces at different distances from the
+ *  limit is never confused).  Each entry simply replaces the last one in
+ *  its slot, unless that one is solved and the new one is not.  The
+ *  table is kept between calls, so a position proven once is proven
+ *  again at once.
+ *  @author Devyanshi Agarwal
+ */
+class ProofNumberSolver {
+
+    /** Default base-2 logarithm of the number of table entries. */
+    static final int DEFAULT_TABLE_BITS = 18;
+
+    /** A solver whose table has 2**TABLEBITS entries. */
+    ProofNumberSolver(int tableBits) {
+        int size = 1 << tableBits;
+        _keys = new long[size];
+        _proof = new int[size];
+        _disproof = new int[size];
+        _mask = size - 1;
+    }
+
+    /** Try to prove that the side on move on BOARD can force a win,
+     *  expanding at most MAXNODES positions and stopping at DEADLINE (as
+     *  from System.currentTimeMillis).  Return a winning line, starting
+     *  with that side's move and alternating with replies, or null if no
+     *  proof was found.  BOARD is unchanged. */
+    List<Move> solve(Board board, long maxNodes, long deadline) {
+        _board.copyFrom(board);
+        _winner = board.turn();
+        _maxNodes = maxNodes;
+        _deadline = deadline;
+        _nodes = 0;
+        _aborted = _stopped = false;
+        if (_board.gameOver()) {
+            return null;
+        }
+        search(0, INFINITY, INFINITY);
+        if (_aborted || _lastProof != 0) {
+            return null;
+        }
+        return provenLine();
+    }
+
+    /** Make the current call to solve give up as soon as possible.  May
+     *  be called from any thread. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Return the number of positions expanded by the last call to
+     *  solve. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Expand positions below the current position of _board, at DEPTH
+     *  from the root, until its proof number reaches PROOFLIMIT or its
+     *  disproof number reaches DISPROOFLIMIT, or the search is aborted.
+     *  Leave its numbers in _lastProof and _lastDisproof, and, unless
+     *  aborted, in the table. */
+    private void search(int depth, int proofLimit, int disproofLimit) {
+        _nodes += 1;
+        if (_nodes > _maxNodes
+            || ((_nodes & CLOCK_INTERVAL) == 0
+                && (_stopped || System.currentTimeMillis() > _deadline))) {
+            _aborted = true;
+        }
+        boolean orNode = _board.turn() == _winner;
+        int[] moves = moveBuffer(depth);
+        int[] proofs = _proofBuffers[depth];
+        int[] disproofs = _disproofBuffers[depth];
+        int n = _board.generateMoves(moves);
+        for (int i = 0; i < n; i += 1) {
+            _board.makeMove(moves[i]);
+            lookup();
+            _board.retract();
+            proofs[i] = _lastProof;
+            disproofs[i] = _lastDisproof;
+        }
+
+        int[] mins = orNode ? proofs : disproofs;
+        int[] sums = orNode ? disproofs : proofs;
+        int minLimit = orNode ? proofLimit : disproofLimit;
+        int sumLimit = orNode ? disproofLimit : proofLimit;
+        int min = INFINITY, sum = 0;
+        while (n > 0) {
+            int best = 0, second = INFINITY;
+            sum = sums[0];
+            for (int i = 1; i < n; i += 1) {
+                sum = Math.min(INFINITY, sum + sums[i]);
+                if (mins[i] < mins[best]) {
+                    second = mins[best];
+                    best = i;
+                } else {
+                    second = Math.min(second, mins[i]);
+                }
+            }
+            min = mins[best];
+            if (min >= minLimit || sum >= sumLimit || _aborted) {
+                break;
+            }
+            int childMinLimit = Math.min(minLimit, second + 1);
+            int childSumLimit = sumLimit - sum + sums[best];
+            _board.makeMove(moves[best]);
+            if (orNode) {
+                search(depth + 1, childMinLimit, childSumLimit);
+            } else {
+                search(depth + 1, childSumLimit, childMinLimit);
+            }
+            _board.retract();
+            proofs[best] = _lastProof;
+            disproofs[best] = _lastDisproof;
+        }
+        if (n == 0) {
+            min = orNode ? INFINITY : 0;
+            sum = orNode ? 0 : INFINITY;
+        }
+
+        int proof = orNode ? min : sum;
+        int disproof = orNode ? sum : min;
+        if (!_aborted) {
+            store(proof, disproof);
+        }
+        _lastProof = proof;
+        _lastDisproof = disproof;
+    }
+
+    /** Set _lastProof and _lastDisproof to the numbers for the current
+     *  position of _board: exact if the game is over, as recorded in the
+     *  table if it is there, and otherwise 1 and 1. */
+    private void lookup() {
+        Piece winner = _board.winner();
+        if (winner != null) {
+            boolean won = winner == _winner;
+            _lastProof = won ? 0 : INFINITY;
+            _lastDisproof = won ? INFINITY : 0;
+            return;
+        }
+        long key = key();
+        int k = (int) key & _mask;
+        if (_keys[k] == key) {
+            _lastProof = _proof[k];
+            _lastDisproof = _disproof[k];
+        } else {
+            _lastProof = _lastDisproof = 1;
+        }
+    }
+
+    /** Record PROOF and DISPROOF as the numbers for the current position
+     *  of _board. */
+    private void store(int proof, int disproof) {
+        long key = key();
+        int k = (int) key & _mask;
+        boolean solved = proof == 0 || disproof == 0;
+        if (_keys[k] != key && _keys[k] != 0
+            && (_proof[k] == 0 || _disproof[k] == 0) && !solved) {
+            return;
+        }
+        _keys[k] = key;
+        _proof[k] = proof;
+        _disproof[k] = disproof;
+    }
+
+    /** Return the table key for the current position of _board. */
+    private long key() {
+        return _board.zobristKey()
+            ^ (_board.movesRemaining() + 1) * MOVES_REMAINING_KEY;
+    }
+
+    /** Return a winning line from the current position of _board, which
+     *  has been proven a win: at each step, the first move (for either
+     *  side) to a position that the table shows proven. */
+    private List<Move> provenLine() {
+        ArrayList<Move> line = new ArrayList<>();
+        int[] moves = new int[MAX_MOVES];
+        int made = 0;
+        while (!_board.gameOver()) {
+            int n = _board.generateMoves(moves);
+            int choice = 0;
+            for (int i = 0; i < n && choice == 0; i += 1) {
+                _board.makeMove(moves[i]);
+                lookup();
+                _board.retract();
+                if (_lastProof == 0) {
+                    choice = moves[i];
+                }
+            }
+            if (choice == 0) {
+                break;
+            }
+            line.add(Move.mv(choice));
+            _board.makeMove(choice);
+            made += 1;
+        }
+        for (; made > 0; made -= 1) {
+            _board.retract();
+        }
+        return line.isEmpty() ? null : line;
+    }
+
+    /** Return the move buffer for DEPTH, creating buffers as needed. */
+    private int[] moveBuffer(int depth) {
+        if (depth >= _moveBuffers.size()) {
+            _moveBuffers.add(new int[MAX_MOVES]);
+            _proofBuffers = Arrays.copyOf(_proofBuffers, depth + 1);
+            _disproofBuffers =
+                Arrays.copyOf(_disproofBuffers, depth + 1);
+            _proofBuffers[depth] = new int[MAX_MOVES];
+            _disproofBuffers[depth] = new int[MAX_MOVES];
+        }
+        return _moveBuffers.get(depth);
+    }
+
+    /** A proof or disproof number meaning "cannot be done". */
+    private static final int INFINITY = 1 << 28;
+    /** Number of nodes (less one) between checks of the clock. */
+    private static final int CLOCK_INTERVAL = 0x3ff;
+    /** Multiplier that mixes the number of moves remaining into a key. */
+    private static final long MOVES_REMAINING_KEY = 0x9e3779b97f4a7c15L;
+
+    /** Table keys, by entry. */
+    private final long[] _keys;
+    /** Proof and disproof numbers, by entry. */
+    private final int[] _proof, _disproof;
+    /** Mask selecting an entry from a key. */
+    private final int _mask;
+
+    /** Move buffers for search, by depth. */
+    private final ArrayList<int[]> _moveBuffers = new ArrayList<>();
+    /** Proof and disproof numbers of the moves in _moveBuffers. */
+    private int[][] _proofBuffers = new int[0][],
+        _disproofBuffers = new int[0][];
+
+    /** The board searched. */
+    private final Board _board = new Board();
+    /** The side whose win is being proven. */
+    private Piece _winner;
+    /** Limits on the current call to solve. */
+    private long _maxNodes, _deadline;
+    /** Number of positions expanded by the current call to solve. */
+    private long _nodes;
+    /** True iff the current call to solve has run out of nodes or
+     *  time. */
+    private boolean _aborted;
+    /** Set by stop, from another thread. */
+    private volatile boolean _stopped;
+    /** The numbers found by the last call to search or lookup. */
+    private int _lastProof, _lastDisproof;
+
+}
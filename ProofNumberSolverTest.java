@@ -0,0 +1,56 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+
+/** Tests of the ProofNumberSolver class.
+ *  @author Devyanshi Agarwal
+ */
+public class ProofNumberSolverTest {
+
+    /** A position in which white, on move, can force a connection in
+     *  seven plies, but not in fewer. */
+    static final Piece[][] WIN_IN_7 = {
+        { EMP,  BP,  BP, EMP, EMP, EMP, EMP, EMP },
+        {  WP,  WP, EMP,  WP, EMP,  BP, EMP, EMP },
+        {  WP, EMP,  WP,  BP,  BP, EMP, EMP, EMP },
+        {  WP, EMP, EMP, EMP,  WP, EMP,  BP, EMP },
+        { EMP, EMP, EMP, EMP, EMP,  BP, EMP,  BP },
+        { EMP, EMP,  WP, EMP, EMP,  BP, EMP,  BP },
+        {  WP, EMP, EMP, EMP,  WP, EMP, EMP, EMP },
+        { EMP,  BP,  BP, EMP, EMP, EMP, EMP, EMP },
+    };
+
+    @Test
+    public void testProvesForcedWin() {
+        Board board = new Board(WIN_IN_7, WP);
+        for (Move move : board.legalMoves()) {
+            board.makeMove(move);
+            assertNotEquals("immediate win " + move, WP, board.winner());
+            board.retract();
+        }
+        ProofNumberSolver solver = new ProofNumberSolver(16);
+        List<Move> line = solver.solve(board, 100000, Long.MAX_VALUE);
+        assertNotNull("no proof found", line);
+        assertEquals("line ends with white's move", 1, line.size() % 2);
+        for (Move move : line) {
+            assertFalse("game over before " + move, board.gameOver());
+            assertTrue("illegal move " + move, board.isLegal(move));
+            board.makeMove(move);
+        }
+        assertEquals("winner after line", WP, board.winner());
+    }
+
+    @Test
+    public void testProvesNothingAtStart() {
+        ProofNumberSolver solver = new ProofNumberSolver(16);
+        assertNull(solver.solve(new Board(), 10000, Long.MAX_VALUE));
+    }
+
+}
@@ -0,0 +1,576 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+import static loa.Piece.*;
+import static loa.Board.MAX_MOVES;
+import static loa.TranspositionTable.*;
+
+/** One thread's share of a MachinePlayer's search: an iterative-deepening
+ *  alpha-beta search of a private copy of the game board.  Searchers
+ *  running at once in different threads share a transposition table,
+ *  through which each profits from what the others have found, but
+ *  nothing else.
+ *  @author Devyanshi Agarwal
+ */
+class Searcher {
+
+    /** A position-score magnitude indicating a win (for the side on move
+     *  if positive, its opponent if negative).  A win N plies from the
+     *  root of a search scores WINNING_VALUE - N, so that faster wins are
+     *  preferred. */
+    static final int WINNING_VALUE = 1 << 24;
+    /** A magnitude greater than a normal value. */
+    static final int INFTY = 1 << 25;
+    /** Half-width of the first aspiration window around the previous
+     *  iteration's score. */
+    private static final int ASPIRATION_WINDOW = 50;
+
+    /** Least remaining depth at which late moves are searched with
+     *  reduced depth. */
+    private static final int LMR_DEPTH = 3;
+    /** Number of moves at each node searched at full depth before any
+     *  are reduced. */
+    private static final int LMR_MOVES = 3;
+    /** Greatest remaining depth at which late quiet moves are pruned. */
+    private static final int LMP_DEPTH = 3;
+    /** Number of moves searched at a node with remaining depth D (at most
+     *  LMP_DEPTH) before late quiet moves are pruned. */
+    private static final int[] LMP_MOVES = { 0, 8, 14, 24 };
+
+    /** Least remaining depth at which a null move is tried. */
+    private static final int NULL_MOVE_DEPTH = 3;
+    /** Least depth reduction of a null-move search beyond the usual one
+     *  ply.  Deeper searches are reduced by another ply for every four
+     *  plies of depth. */
+    private static final int NULL_MOVE_REDUCTION = 2;
+    /** Least remaining depth at which ProbCut is tried. */
+    private static final int PROBCUT_DEPTH = 5;
+    /** Depth reduction of the shallow search used by ProbCut. */
+    private static final int PROBCUT_REDUCTION = 4;
+    /** Margin by which the shallow ProbCut search must exceed beta. */
+    private static final int PROBCUT_MARGIN = 100;
+
+    /** Deepest iteration that search will attempt. */
+    static final int MAX_DEPTH = 64;
+    /** Greatest distance from the root that the search, including its
+     *  quiescence search, reaches. */
+    static final int MAX_PLY = MAX_DEPTH + 32;
+    /** Number of nodes (less one) between checks of the clock. */
+    private static final int CLOCK_INTERVAL = 0x3ff;
+
+    /** A searcher that records its results in TABLE and scores positions
+     *  with EVALUATOR. */
+    Searcher(TranspositionTable table, Evaluator evaluator) {
+        this(table, evaluator, null);
+    }
+
+    /** A searcher that records its results in TABLE, scores positions
+     *  with EVALUATOR, and takes the results of positions with few pieces
+     *  from TABLEBASE, unless it is null. */
+    Searcher(TranspositionTable table, Evaluator evaluator,
+             Tablebase tablebase) {
+        _table = table;
+        _evaluator = evaluator;
+        _tablebase = tablebase;
+    }
+
+    /** Prepare to search from POSITION, which is copied. */
+    void setPosition(Board position) {
+        _work.copyFrom(position);
+        _rootPly = _work.movesMade();
+        _nullPlies = 0;
+        _nodes = _nullTries = _nullCutoffs = _probCutTries = _probCutoffs = 0;
+        _bestMove = null;
+        _bestValue = 0;
+        _timeUp = _stopped = false;
+        _orderer.newSearch();
+    }
+
+    /** Set the deadlines of the search, as times from
+     *  System.currentTimeMillis: it stops at DEADLINE, or at the end of
+     *  the first iteration to finish after SOFTDEADLINE.  May be called
+     *  from any thread, before or during the search. */
+    void setDeadlines(long softDeadline, long deadline) {
+        _softDeadline = softDeadline;
+        _deadline = deadline;
+    }
+
+    /** Search the position given to setPosition to successively greater
+     *  depths, starting at FIRSTDEPTH, until stop is called or a deadline
+     *  set by setDeadlines passes.  Afterwards, bestMove and bestValue
+     *  give the result of the deepest iteration that finished.  Reports
+     *  each iteration at debug level 1 iff REPORT. */
+    void search(int firstDepth, boolean report) {
+        int value = 0;
+        for (int depth = firstDepth; depth <= MAX_DEPTH; depth += 1) {
+            value = aspirationSearch(_work, depth, value);
+            if (_timeUp || _foundMove == null) {
+                break;
+            }
+            _bestMove = _foundMove;
+            _bestValue = value;
+            if (report) {
+                Utils.debug(1, "depth %d: %s (%d) %d nodes", depth,
+                            _bestMove, value, _nodes);
+            }
+            if (isWin(value)
+                || System.currentTimeMillis() > _softDeadline) {
+                break;
+            }
+        }
+        if (report) {
+            Utils.debug(1, "null moves: %d cutoffs / %d tries;"
+                        + " ProbCut: %d cutoffs / %d tries",
+                        _nullCutoffs, _nullTries, _probCutoffs,
+                        _probCutTries);
+        }
+    }
+
+    /** Make the current search stop as soon as possible.  May be called
+     *  from any thread. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Return the best move found by the last search, or null if it did
+     *  not finish an iteration. */
+    Move bestMove() {
+        return _bestMove;
+    }
+
+    /** Return the value of bestMove() for the side on move. */
+    int bestValue() {
+        return _bestValue;
+    }
+
+    /** Return the number of nodes visited by the last search. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the value of POSITION, PLY plies from the root of a larger
+     *  search, for the side on move, searched to DEPTH with the window
+     *  (ALPHA, BETA) as for findMove, giving up at DEADLINE (as from
+     *  System.currentTimeMillis).  POSITION is copied.  Afterwards,
+     *  stopped() is true iff the result is incomplete, and nodes() counts
+     *  the nodes visited.  A call to stop since the last call to
+     *  setPosition also cuts the search short. */
+    int searchSubtree(Board position, int ply, int depth, int alpha,
+                      int beta, long deadline) {
+        _work.copyFrom(position);
+        _rootPly = _work.movesMade() - ply;
+        _nullPlies = 0;
+        _nodes = 0;
+        _timeUp = false;
+        _deadline = deadline;
+        return findMove(_work, depth, false, alpha, beta);
+    }
+
+    /** Forget all that earlier searches have learned about the order in
+     *  which to try moves, so that later calls of searchSubtree do not
+     *  depend on them. */
+    void clearOrdering() {
+        _orderer.clear();
+    }
+
+    /** Return true iff the last search ran out of time or was stopped
+     *  before it finished. */
+    boolean stopped() {
+        return _timeUp;
+    }
+
+    /** Search BOARD to DEPTH with a window centered on GUESS, the score of
+     *  the previous iteration, widening the window and searching again
+     *  whenever the score falls outside it.  Return the score, leaving the
+     *  best move in _foundMove (null if the search ran out of time). */
+    private int aspirationSearch(Board board, int depth, int guess) {
+        int alpha = -INFTY, beta = INFTY, delta = ASPIRATION_WINDOW;
+        if (depth > 1 && !isWin(guess) && !isWin(-guess)) {
+            alpha = guess - delta;
+            beta = guess + delta;
+        }
+        while (true) {
+            _foundMove = null;
+            int value = findMove(board, depth, true, alpha, beta);
+            if (_timeUp || (value > alpha && value < beta)) {
+                return value;
+            }
+            delta *= 4;
+            if (value <= alpha) {
+                alpha = Math.max(-INFTY, value - delta);
+            } else {
+                beta = Math.min(INFTY, value + delta);
+            }
+        }
+    }
+
+    /** Return true iff VALUE indicates a forced win for the side on
+     *  move. */
+    static boolean isWin(int value) {
+        return value >= WINNING_VALUE - MAX_PLY;
+    }
+
+    /** Count a node, and return true iff the current search has been
+     *  stopped or has run past its deadline.  Checks only once every
+     *  CLOCK_INTERVAL + 1 nodes.  The deadline is hard: it applies even
+     *  before the first iteration has finished, in which case there is
+     *  no best move. */
+    private boolean timeUp() {
+        _nodes += 1;
+        if (!_timeUp && (_nodes & CLOCK_INTERVAL) == 0) {
+            _timeUp = _stopped || System.currentTimeMillis() > _deadline;
+        }
+        return _timeUp;
+    }
+
+
+    /** Find a move from position BOARD and return its value, from the
+     *  point of view of the side on move, recording the move found in
+     *  _foundMove iff SAVEMOVE.  This is a negamax principal-variation
+     *  search: the first move gets the full window (ALPHA, BETA), and each
+     *  later move a null window just above ALPHA, which is searched again
+     *  with the full window only if the move turns out to be better.  Late
+     *  quiet moves are first searched to a reduced depth, and again to full
+     *  depth if they beat ALPHA; near the leaves, outside the principal
+     *  variation, they are skipped altogether.  Neither applies when the
+     *  side on move might connect with one move (see Board.mayConnect).
+     *  The result is exact if it lies strictly between ALPHA and BETA,
+     *  and otherwise is a bound in the direction of the failure.
+     *  Searches up to DEPTH levels.  Searching at level 0 returns the
+     *  value found by quiesce and does not set _foundMove.  If the game
+     *  is over on BOARD, does not set _foundMove.  Results are recorded in
+     *  and, except at the root, answered from the transposition table. */
+    private int findMove(Board board, int depth, boolean saveMove,
+                         int alpha, int beta) {
+        int ply = board.movesMade() - _rootPly + _nullPlies;
+        if (board.gameOver()) {
+            return staticEval(board, ply);
+        } else if (depth == 0) {
+            return quiesce(board, ply, alpha, beta);
+        }
+        if (timeUp()) {
+            return 0;
+        }
+        long key = board.zobristKey();
+        long entry = _table.probe(key);
+        int hashMove = 0;
+        if (entry != 0) {
+            hashMove = move(entry);
+            if (!saveMove && depth(entry) >= depth) {
+                int score = fromTable(score(entry), ply);
+                switch (bound(entry)) {
+                case EXACT:
+                    return score;
+                case LOWER:
+                    if (score >= beta) {
+                        return score;
+                    }
+                    break;
+                default:
+                    if (score <= alpha) {
+                        return score;
+                    }
+                    break;
+                }
+            }
+        }
+        if (_tablebase != null && !saveMove) {
+            int known = _tablebase.probe(board);
+            if (known != 0
+                && Tablebase.distance(known) <= board.movesRemaining()) {
+                int win = WINNING_VALUE - ply - Tablebase.distance(known);
+                return known > 0 ? win : -win;
+            }
+        }
+        if (!saveMove && beta - alpha == 1 && !isWin(beta)
+            && !isWin(-beta)) {
+            if (depth >= NULL_MOVE_DEPTH && !_nullMade[ply]
+                && nullMoveCutoff(board, depth, ply, beta)) {
+                return beta;
+            }
+            if (depth >= PROBCUT_DEPTH
+                && probCutoff(board, depth, beta)) {
+                return beta;
+            }
+        }
+        int[] moves = _moveBuffers[ply];
+        int numMoves = board.generateMoves(moves);
+        if (numMoves == 0) {
+            return staticEval(board, ply);
+        }
+        _orderer.score(board, moves, numMoves, ply, hashMove);
+        int alpha0 = alpha;
+        boolean pvNode = beta - alpha > 1;
+        boolean mayConnect = board.mayConnect(board.turn());
+        int bestScore = -INFTY;
+        int bestMove = 0;
+        for (int i = 0; i < numMoves; i += 1) {
+            int move = _orderer.next(moves, i, numMoves, ply);
+            boolean quiet = i > 0 && _orderer.quiet(ply, i) && !mayConnect;
+            if (quiet && !pvNode && depth <= LMP_DEPTH
+                && i >= LMP_MOVES[depth] && !isWin(-bestScore)) {
+                continue;
+            }
+            board.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -findMove(board, depth - 1, false, -beta, -alpha);
+            } else {
+                int r = 0;
+                if (quiet && depth >= LMR_DEPTH && i >= LMR_MOVES) {
+                    r = Math.min(REDUCTIONS[depth][i], depth - 2);
+                }
+                score = -findMove(board, depth - 1 - r, false,
+                                  -alpha - 1, -alpha);
+                if (r > 0 && score > alpha) {
+                    score = -findMove(board, depth - 1, false,
+                                      -alpha - 1, -alpha);
+                }
+                if (score > alpha && score < beta) {
+                    score = -findMove(board, depth - 1, false, -beta, -alpha);
+                }
+            }
+            board.retract();
+            if (_timeUp) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        _orderer.cutoff(board, move, ply, depth);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound;
+        if (bestScore >= beta) {
+            bound = LOWER;
+        } else if (bestScore <= alpha0) {
+            bound = UPPER;
+        } else {
+            bound = EXACT;
+        }
+        _table.store(key, depth, toTable(bestScore, ply), bound, bestMove);
+
+        if (saveMove) {
+            _foundMove = Move.mv(bestMove);
+        }
+        return bestScore;
+    }
+
+    /** Return the value of BOARD, at PLY, from the point of view of the
+     *  side on move, as for findMove, considering only captures, which
+     *  break up the regions of the captured side, and quiet moves that
+     *  win at once by connecting the side on move (sought only when
+     *  Board.mayConnect allows one).  The side on move may
+     *  also "stand pat" on the static value of BOARD, and the search ends
+     *  as soon as that reaches BETA. */
+    private int quiesce(Board board, int ply, int alpha, int beta) {
+        int standPat = staticEval(board, ply);
+        if (board.gameOver() || standPat >= beta || ply >= MAX_PLY
+            || timeUp()) {
+            return standPat;
+        }
+        int[] moves = _moveBuffers[ply];
+        Piece side = board.turn();
+        if (board.mayConnect(side)) {
+            int numMoves = board.generateMoves(moves);
+            for (int i = 0; i < numMoves; i += 1) {
+                board.makeMove(moves[i]);
+                boolean won = board.winner() == side;
+                board.retract();
+                if (won) {
+                    return WINNING_VALUE - ply - 1;
+                }
+            }
+        }
+        int numMoves = board.generateCaptures(moves);
+        _orderer.score(board, moves, numMoves, ply, 0);
+        int bestScore = standPat;
+        alpha = Math.max(alpha, standPat);
+        for (int i = 0; i < numMoves; i += 1) {
+            board.makeMove(_orderer.next(moves, i, numMoves, ply));
+            int score = -quiesce(board, ply + 1, -beta, -alpha);
+            board.retract();
+            if (_timeUp) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    /** Return true iff passing the turn on BOARD, where a search to
+     *  DEPTH at PLY needs a score of at least BETA, still leaves the side
+     *  on move at least BETA after a search reduced by a further R plies.
+     *  Since it is almost never a disadvantage to move in this game, the
+     *  real moves should then do at least as well.  Near the move limit,
+     *  where the extra tempo can turn a draw into something else, a
+     *  cutoff is confirmed by a reduced search of BOARD itself with null
+     *  moves disabled. */
+    private boolean nullMoveCutoff(Board board, int depth, int ply,
+                                   int beta) {
+        int value = _evaluator.evaluate(board);
+        if ((board.turn() == WP ? value : -value) < beta) {
+            return false;
+        }
+        int r = NULL_MOVE_REDUCTION + depth / 4;
+        int reduced = Math.max(0, depth - 1 - r);
+        _nullTries += 1;
+        board.makeNullMove();
+        _nullPlies += 1;
+        _nullMade[ply + 1] = true;
+        int score = -findMove(board, reduced, false, -beta, -beta + 1);
+        _nullMade[ply + 1] = false;
+        _nullPlies -= 1;
+        board.retractNullMove();
+        if (_timeUp || score < beta) {
+            return false;
+        }
+        if (board.movesRemaining() <= depth) {
+            _nullMade[ply] = true;
+            score = findMove(board, Math.max(1, depth - r), false,
+                             beta - 1, beta);
+            _nullMade[ply] = false;
+            if (_timeUp || score < beta) {
+                return false;
+            }
+        }
+        _nullCutoffs += 1;
+        return true;
+    }
+
+    /** Return true iff a search of BOARD reduced by PROBCUT_REDUCTION
+     *  plies scores at least PROBCUT_MARGIN above BETA, which predicts
+     *  that the full search to DEPTH would score at least BETA. */
+    private boolean probCutoff(Board board, int depth, int beta) {
+        int rbeta = beta + PROBCUT_MARGIN;
+        _probCutTries += 1;
+        int score = findMove(board, depth - PROBCUT_REDUCTION, false,
+                             rbeta - 1, rbeta);
+        if (_timeUp || score < rbeta) {
+            return false;
+        }
+        _probCutoffs += 1;
+        return true;
+    }
+
+    /** Depth reductions for late moves, indexed by remaining depth and by
+     *  the position of the move in the order searched.  Reductions grow
+     *  with the logarithms of both. */
+    private static final int[][] REDUCTIONS =
+        new int[MAX_DEPTH + 1][Board.MAX_MOVES];
+
+    static {
+        for (int d = 1; d <= MAX_DEPTH; d += 1) {
+            for (int i = 1; i < Board.MAX_MOVES; i += 1) {
+                REDUCTIONS[d][i] =
+                    (int) (0.5 + Math.log(d) * Math.log(i) / 2.25);
+            }
+        }
+    }
+
+    /** Return SCORE, found at PLY plies from the root, in the form stored
+     *  in the transposition table, where wins count plies from the
+     *  position stored rather than from the root. */
+    static int toTable(int score, int ply) {
+        if (isWin(score)) {
+            return score + ply;
+        } else if (isWin(-score)) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /** Return the inverse of toTable(SCORE, PLY). */
+    static int fromTable(int score, int ply) {
+        if (isWin(score)) {
+            return score - ply;
+        } else if (isWin(-score)) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /** Returns a value for the BOARD passed in, PLY plies from the root,
+     *  from the point of view of the side on move: +/-(WINNING_VALUE - PLY)
+     *  or 0 if the game is over, and otherwise my evaluator's estimate. */
+    private int staticEval(Board board, int ply) {
+        Piece winner = board.winner();
+        if (winner == EMP) {
+            return 0;
+        } else if (winner != null) {
+            int win = WINNING_VALUE - ply;
+            return winner == board.turn() ? win : -win;
+        }
+        int value = _evaluator.evaluate(board);
+        return board.turn() == WP ? value : -value;
+    }
+
+    /** Transposition table used by findMove, possibly shared. */
+    private final TranspositionTable _table;
+    /** Scores non-final positions for staticEval. */
+    private final Evaluator _evaluator;
+    /** Exact results of positions with few pieces, or null. */
+    private final Tablebase _tablebase;
+
+    /** Time (as from System.currentTimeMillis) at which the current
+     *  search must stop. */
+    private volatile long _deadline;
+    /** Time after which the current search stops at the end of an
+     *  iteration. */
+    private volatile long _softDeadline;
+    /** True iff the current search has passed its deadline or been
+     *  stopped, so that results of the current iteration are
+     *  incomplete. */
+    private boolean _timeUp;
+    /** Set by stop, from another thread. */
+    private volatile boolean _stopped;
+    /** Number of nodes visited by the current search. */
+    private long _nodes;
+
+    /** Value of movesMade() on the working board at the start of the
+     *  current search. */
+    private int _rootPly;
+    /** Number of null moves on the path from the root to the current
+     *  node of the search. */
+    private int _nullPlies;
+    /** _nullMade[P] is true iff the move leading to the node at ply P of
+     *  the search was a null move, in which case another is not tried. */
+    private final boolean[] _nullMade = new boolean[MAX_PLY + 2];
+    /** Counts, over one search, of null-move searches tried and of the
+     *  cutoffs they produced. */
+    private long _nullTries, _nullCutoffs;
+    /** Counts, over one search, of ProbCut searches tried and of the
+     *  cutoffs they produced. */
+    private long _probCutTries, _probCutoffs;
+    /** Move buffers for findMove, indexed by distance from the root. */
+    private final int[][] _moveBuffers = new int[MAX_PLY + 1][MAX_MOVES];
+
+    /** Chooses the order in which findMove tries moves. */
+    private final MoveOrderer _orderer = new MoveOrderer(MAX_PLY);
+
+    /** Used to convey moves discovered by findMove. */
+    private Move _foundMove;
+    /** The best move found by the deepest finished iteration. */
+    private Move _bestMove;
+    /** The value of _bestMove. */
+    private int _bestValue;
+
+    /** The board on which the search makes and retracts its moves. */
+    private final Board _work = new Board();
+
+}
@@ -0,0 +1,98 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+import static loa.Move.mv;
+import static loa.Searcher.WINNING_VALUE;
+
+/** Tests of the Searcher class.  Its first iteration searches with a
+ *  full window, and later ones with aspiration windows around the
+ *  previous score, so that finding a forced win requires failing high
+ *  and searching again.
+ *  @author Devyanshi Agarwal
+ */
+public class SearcherTest {
+
+    /** A position in which white, on move, can force a connection in
+     *  three plies, but not in one. */
+    static final Piece[][] MATE_IN_2 = {
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP,  BP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP,  WP, EMP, EMP,  WP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP,  BP },
+        { EMP, EMP, EMP, EMP,  BP, EMP,  WP,  BP },
+        { EMP, EMP,  BP, EMP, EMP, EMP,  WP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP,  BP, EMP, EMP,  BP,  BP },
+    };
+
+    @Test
+    public void testMateInOne() {
+        Board board = new Board(ProofNumberSolverTest.WIN_IN_7, WP);
+        board.makeMove(mv("a7-d4"));
+        board.makeMove(mv("b1-d1"));
+        Searcher searcher = searcher();
+        assertEquals("value", WINNING_VALUE - 1, search(searcher, board));
+        board.makeMove(searcher.bestMove());
+        assertEquals("winner", WP, board.winner());
+    }
+
+    /** Test that the search finds the win in MATE_IN_2, and then wins in
+     *  one move against every reply that does not already lose. */
+    @Test
+    public void testMateInTwo() {
+        Board board = new Board(MATE_IN_2, WP);
+        Searcher searcher = searcher();
+        assertEquals("value", WINNING_VALUE - 3, search(searcher, board));
+        board.makeMove(searcher.bestMove());
+        assertNull("game over", board.winner());
+        for (Move reply : board.legalMoves()) {
+            board.makeMove(reply);
+            if (board.winner() == null) {
+                assertEquals("value after " + reply, WINNING_VALUE - 1,
+                             search(searcher, board));
+                board.makeMove(searcher.bestMove());
+                assertEquals("winner after " + reply, WP, board.winner());
+                board.retract();
+            } else {
+                assertEquals("winner after " + reply, WP, board.winner());
+            }
+            board.retract();
+        }
+    }
+
+    /** Test that the search finds the shortest forced win in a position
+     *  where it is seven plies away. */
+    @Test
+    public void testLongerWin() {
+        Board board = new Board(ProofNumberSolverTest.WIN_IN_7, WP);
+        assertEquals("value", WINNING_VALUE - 7,
+                     search(searcher(), board));
+    }
+
+    /** Return a new searcher with a small table. */
+    private static Searcher searcher() {
+        return new Searcher(new TranspositionTable(1),
+                            new WeightedEvaluator());
+    }
+
+    /** Return the value found by SEARCHER for BOARD, searched until it
+     *  finds a forced win or SEARCH_TIME passes. */
+    private static int search(Searcher searcher, Board board) {
+        searcher.setPosition(board);
+        long now = System.currentTimeMillis();
+        searcher.setDeadlines(now + SEARCH_TIME, now + SEARCH_TIME);
+        searcher.search(1, false);
+        assertNotNull("no move found", searcher.bestMove());
+        assertTrue("illegal move", board.isLegal(searcher.bestMove()));
+        return searcher.bestValue();
+    }
+
+    /** Milliseconds allowed for each search. */
+    private static final long SEARCH_TIME = 10000;
+
+}
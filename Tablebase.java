@@ -0,0 +1,395 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static loa.Piece.*;
+import static loa.Board.MAX_MOVES;
+import static loa.Square.ALL_SQUARES;
+import static loa.Square.BOARD_SIZE;
+
+/** Endgame tablebases: the exact result of every position in which each
+ *  side has from two to some limit of pieces, as found by retrograde
+ *  analysis.  (A side with one piece has already won.)  Each position
+ *  has one byte: 0 if neither side can force a win within MAX_DISTANCE
+ *  plies, V > 0 if the side on move wins in V-1 plies, and V < 0 if it
+ *  loses in -V-1 plies.  The move limit is ignored, so a win is real only
+ *  if it is no longer than the number of moves remaining.
+ *
+ *  The results for each combination of piece counts are in one file,
+ *  with one half for each side on move, indexed by the ranks of the two
+ *  sides' sets of squares (see index).  The files are mapped read-only
+ *  into memory, so that they are shared by all programs on a host.
+ *
+ *  The tables are made offline by generate, smallest first.  It marks
+ *  the finished positions, and then makes repeated passes over the rest,
+ *  divided among several threads.  On pass P, a position is a win in P
+ *  plies if some move leads to a loss in P-1, and a loss in P plies if
+ *  every move leads to a win in at most P-1.  Moves, and the results of
+ *  the positions they lead to, are found with Board, so the tables follow
+ *  exactly the rules that it does.
+ *  @author Devyanshi Agarwal
+ */
+class Tablebase {
+
+    /** Default greatest number of pieces per side. */
+    static final int DEFAULT_PIECES = 2;
+    /** Greatest distance to a win, in plies, that can be recorded. */
+    static final int MAX_DISTANCE = Byte.MAX_VALUE - 1;
+
+    /** Tables for positions with at most MAXPIECES pieces per side,
+     *  read from the files made by generate in DIRECTORY.  Throws
+     *  IOException if any is missing or of the wrong size. */
+    Tablebase(String directory, int maxPieces) throws IOException {
+        checkPieces(maxPieces);
+        _maxPieces = maxPieces;
+        _tables = new MappedByteBuffer[maxPieces + 1][maxPieces + 1][];
+        for (int w = 2; w <= maxPieces; w += 1) {
+            for (int b = 2; b <= maxPieces; b += 1) {
+                _tables[w][b] = map(file(directory, w, b), size(w, b));
+            }
+        }
+    }
+
+    /** Return the greatest number of pieces per side that I cover. */
+    int maxPieces() {
+        return _maxPieces;
+    }
+
+    /** Return the result of BOARD for the side on move, encoded as
+     *  described above, or 0 if it is not in my tables. */
+    int probe(Board board) {
+        long white = board.pieces(WP), black = board.pieces(BP);
+        int w = Long.bitCount(white), b = Long.bitCount(black);
+        if (w < 2 || b < 2 || w > _maxPieces || b > _maxPieces) {
+            return 0;
+        }
+        return _tables[w][b][board.turn().ordinal()]
+            .get(index(white, black));
+    }
+
+    /** Return the number of plies to the end of the game given by the
+     *  nonzero result VALUE of probe. */
+    static int distance(int value) {
+        return Math.abs(value) - 1;
+    }
+
+    /** Make the tables for at most MAXPIECES pieces per side, using
+     *  THREADS threads, and write them to files in DIRECTORY.  Reports
+     *  progress at debug level 1. */
+    static void generate(String directory, int maxPieces, int threads)
+        throws IOException {
+        checkPieces(maxPieces);
+        Generator generator = new Generator(maxPieces, Math.max(1, threads));
+        for (int total = 4; total <= 2 * maxPieces; total += 1) {
+            for (int w = 2; w <= maxPieces; w += 1) {
+                int b = total - w;
+                if (b >= 2 && b <= maxPieces) {
+                    byte[][] values = generator.solve(w, b);
+                    try (OutputStream out = new BufferedOutputStream(
+                             new FileOutputStream(file(directory, w, b)
+                                                  .toFile()))) {
+                        out.write(values[BP.ordinal()]);
+                        out.write(values[WP.ordinal()]);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Throw IllegalArgumentException unless tables for MAXPIECES pieces
+     *  per side can be indexed. */
+    private static void checkPieces(int maxPieces) {
+        if (maxPieces < 2 || maxPieces >= CHOOSE[0].length
+            || CHOOSE[NUM_SQUARES][maxPieces]
+               * CHOOSE[NUM_SQUARES - maxPieces][maxPieces]
+               > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("cannot make tablebases for "
+                                               + maxPieces + " pieces");
+        }
+    }
+
+    /** Return the name of the file in DIRECTORY holding the table for W
+     *  white and B black pieces. */
+    private static Path file(String directory, int w, int b) {
+        return Paths.get(directory, String.format("loa%dw%db.tb", w, b));
+    }
+
+    /** Return the two halves (black to move, then white) of the file
+     *  FILE, each SIZE bytes, mapped read-only. */
+    private static MappedByteBuffer[] map(Path file, int size)
+        throws IOException {
+        try (FileChannel channel =
+             FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != 2L * size) {
+                throw new IOException("wrong size for tablebase: " + file);
+            }
+            return new MappedByteBuffer[] {
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, size),
+                channel.map(FileChannel.MapMode.READ_ONLY, size, size)
+            };
+        }
+    }
+
+    /** Return the number of positions, for each side on move, with W
+     *  white and B black pieces. */
+    static int size(int w, int b) {
+        return (int) (CHOOSE[NUM_SQUARES][w] * CHOOSE[NUM_SQUARES - w][b]);
+    }
+
+    /** Return the index of the position with white pieces on the squares
+     *  in the mask WHITE and black pieces on those in BLACK.  It is the
+     *  rank of WHITE among sets of its size, times the number of ways to
+     *  place the black pieces, plus the rank of BLACK among sets of its
+     *  size on the squares left over, which are numbered in order. */
+    static int index(long white, long black) {
+        long packed = 0;
+        for (long rest = black; rest != 0; rest &= rest - 1) {
+            int k = Long.numberOfTrailingZeros(rest);
+            packed |= 1L << (k - Long.bitCount(white & ((1L << k) - 1)));
+        }
+        int w = Long.bitCount(white);
+        return (int) (rank(white)
+                      * CHOOSE[NUM_SQUARES - w][Long.bitCount(black)])
+            + (int) rank(packed);
+    }
+
+    /** Return the colexicographic rank of SET among sets of squares of
+     *  the same size: the sum over its members S, in increasing order, of
+     *  the number of ways to choose I from S, where I counts from 1. */
+    private static long rank(long set) {
+        long result = 0;
+        int i = 1;
+        for (long rest = set; rest != 0; rest &= rest - 1, i += 1) {
+            result += CHOOSE[Long.numberOfTrailingZeros(rest)][i];
+        }
+        return result;
+    }
+
+    /** Return the set of K squares of rank RANK (the inverse of rank). */
+    private static long unrank(long rank, int k) {
+        long set = 0;
+        for (int i = k; i >= 1; i -= 1) {
+            int s = i - 1;
+            while (CHOOSE[s + 1][i] <= rank) {
+                s += 1;
+            }
+            rank -= CHOOSE[s][i];
+            set |= 1L << s;
+        }
+        return set;
+    }
+
+    /** Solves the tables, keeping them in memory. */
+    private static class Generator {
+
+        /** A generator for at most MAXPIECES pieces per side, searching in
+         *  THREADS threads. */
+        Generator(int maxPieces, int threads) {
+            _values = new byte[maxPieces + 1][maxPieces + 1][][];
+            _threads = threads;
+        }
+
+        /** Solve the table for W white and B black pieces, assuming that
+         *  those with fewer pieces are solved, and return its two halves
+         *  (indexed by the ordinal of the side on move). */
+        byte[][] solve(int w, int b) {
+            int size = size(w, b);
+            _values[w][b] = new byte[][] { new byte[size], new byte[size] };
+            int limit = _maxDistance + 1;
+            for (int pass = 0; pass <= MAX_DISTANCE; pass += 1) {
+                Worker[] workers = new Worker[_threads];
+                Thread[] threads = new Thread[_threads];
+                for (int i = 0; i < _threads; i += 1) {
+                    workers[i] = new Worker(w, b, pass,
+                                            (int) ((long) size * i / _threads),
+                                            (int) ((long) size * (i + 1)
+                                                   / _threads));
+                    threads[i] = new Thread(workers[i]);
+                    threads[i].start();
+                }
+                long solved = 0;
+                for (int i = 0; i < _threads; i += 1) {
+                    try {
+                        threads[i].join();
+                    } catch (InterruptedException excp) {
+                        throw new IllegalStateException("interrupted");
+                    }
+                    solved += workers[i].solved();
+                }
+                Utils.debug(1, "tablebase %dw%db pass %d: %d solved",
+                            w, b, pass, solved);
+                if (solved > 0) {
+                    _maxDistance = Math.max(_maxDistance, pass);
+                } else if (pass > limit) {
+                    break;
+                }
+            }
+            return _values[w][b];
+        }
+
+        /** Solves the positions in one range of indices on one pass. */
+        private class Worker implements Runnable {
+
+            /** A worker for pass PASS over the positions with W white and
+             *  B black pieces whose indices are from FIRST to LAST-1, for
+             *  each side on move. */
+            Worker(int w, int b, int pass, int first, int last) {
+                _w = w;
+                _b = b;
+                _pass = pass;
+                _first = first;
+                _last = last;
+            }
+
+            @Override
+            public void run() {
+                long placements = CHOOSE[NUM_SQUARES - _w][_b];
+                for (Piece side : new Piece[] { BP, WP }) {
+                    byte[] values = _values[_w][_b][side.ordinal()];
+                    for (int x = _first; x < _last; x += 1) {
+                        if (values[x] == 0) {
+                            setUp(unrank(x / placements, _w),
+                                  unrank(x % placements, _b), side);
+                            values[x] = (byte) evaluate();
+                            if (values[x] != 0) {
+                                _solved += 1;
+                            }
+                        }
+                    }
+                }
+            }
+
+            /** Return the number of positions I solved. */
+            long solved() {
+                return _solved;
+            }
+
+            /** Return the result for the position on _board, as found on
+             *  this pass, or 0 if it is not yet known. */
+            private int evaluate() {
+                if (_pass == 0) {
+                    Piece winner = _board.winner();
+                    if (winner == null) {
+                        return 0;
+                    }
+                    return winner == _board.turn() ? 1 : -1;
+                }
+                int n = _board.generateMoves(_moves);
+                boolean allWon = n > 0;
+                for (int i = 0; i < n; i += 1) {
+                    _board.makeMove(_moves[i]);
+                    int value = successor();
+                    _board.retract();
+                    if (value < 0 && distance(value) < _pass) {
+                        return _pass + 1;
+                    } else if (value <= 0 || distance(value) >= _pass) {
+                        allWon = false;
+                    }
+                }
+                return allWon ? -_pass - 1 : 0;
+            }
+
+            /** Return the result known so far for the position on
+             *  _board. */
+            private int successor() {
+                Piece winner = _board.winner();
+                if (winner != null) {
+                    return winner == _board.turn() ? 1 : -1;
+                }
+                long white = _board.pieces(WP), black = _board.pieces(BP);
+                return _values[Long.bitCount(white)][Long.bitCount(black)]
+                    [_board.turn().ordinal()][index(white, black)];
+            }
+
+            /** Set _board to the position with white pieces on WHITE,
+             *  black pieces on the squares of BLACK as numbered by index,
+             *  and SIDE to move. */
+            private void setUp(long white, long black, Piece side) {
+                for (long rest = _board.occupied(); rest != 0;
+                     rest &= rest - 1) {
+                    _board.set(ALL_SQUARES[Long.numberOfTrailingZeros(rest)],
+                               EMP);
+                }
+                for (long rest = white; rest != 0; rest &= rest - 1) {
+                    _board.set(ALL_SQUARES[Long.numberOfTrailingZeros(rest)],
+                               WP);
+                }
+                int k = 0;
+                for (int c = 0; c < NUM_SQUARES; c += 1) {
+                    if ((white & (1L << c)) != 0) {
+                        continue;
+                    }
+                    if ((black & (1L << k)) != 0) {
+                        _board.set(ALL_SQUARES[c], BP, side);
+                    }
+                    k += 1;
+                }
+            }
+
+            /** Numbers of white and black pieces. */
+            private final int _w, _b;
+            /** The current pass. */
+            private final int _pass;
+            /** Bounds of my range of indices. */
+            private final int _first, _last;
+            /** Holds the position being solved. */
+            private final Board _board = new Board(EMPTY_BOARD, BP);
+            /** Buffer for its moves. */
+            private final int[] _moves = new int[MAX_MOVES];
+            /** Number of positions I have solved. */
+            private long _solved;
+        }
+
+        /** Tables solved so far, indexed by numbers of white and black
+         *  pieces, and by the ordinal of the side on move. */
+        private final byte[][][][] _values;
+        /** Number of threads to use. */
+        private final int _threads;
+        /** Greatest distance found so far. */
+        private int _maxDistance;
+    }
+
+    /** Number of squares on the board. */
+    private static final int NUM_SQUARES = ALL_SQUARES.length;
+
+    /** A board with no pieces. */
+    private static final Piece[][] EMPTY_BOARD =
+        new Piece[BOARD_SIZE][BOARD_SIZE];
+
+    static {
+        for (Piece[] row : EMPTY_BOARD) {
+            Arrays.fill(row, EMP);
+        }
+    }
+
+    /** CHOOSE[N][K] is the number of ways to choose K of N things, for K
+     *  up to 8. */
+    private static final long[][] CHOOSE = new long[NUM_SQUARES + 1][9];
+
+    static {
+        for (int n = 0; n <= NUM_SQUARES; n += 1) {
+            CHOOSE[n][0] = 1;
+            for (int k = 1; k < CHOOSE[n].length && n > 0; k += 1) {
+                CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + CHOOSE[n - 1][k];
+            }
+        }
+    }
+
+    /** Greatest number of pieces per side covered. */
+    private final int _maxPieces;
+    /** Mapped tables, indexed by numbers of white and black pieces, and by
+     *  the ordinal of the side on move. */
+    private final MappedByteBuffer[][][] _tables;
+
+}
@@ -0,0 +1,173 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+import static loa.Square.sq;
+import static loa.Searcher.WINNING_VALUE;
+
+/** Tests of the results in tables made by Tablebase.generate.  The
+ *  tables for two pieces a side are made once, in a temporary directory,
+ *  for all the tests.  Making them takes a couple of minutes on one
+ *  processor, so these tests are not among those run by UnitTests; run
+ *  them on their own after changing Tablebase or the rules in Board.
+ *  @author Devyanshi Agarwal
+ */
+public class TablebaseResultsTest {
+
+    /** Test two positions whose results were checked by full search. */
+    @Test
+    public void testKnownResults() throws IOException {
+        Tablebase tables = tables();
+        Board win = position(WP, "a6", "g6", "a1", "h6");
+        assertEquals("win in 5", 6, tables.probe(win));
+        assertEquals("win in 5 by search", 6, solve(win, 5));
+        Board loss = position(WP, "a1", "h6", "b4", "b7");
+        assertEquals("loss in 4", -5, tables.probe(loss));
+        assertEquals("loss in 4 by search", -5, solve(loss, 5));
+    }
+
+    /** Test that every result within SEARCH_DEPTH plies in a sample of
+     *  positions is the one found by full search, and that there are no
+     *  others. */
+    @Test
+    public void testShortResults() throws IOException {
+        Tablebase tables = tables();
+        Random random = new Random(7);
+        int decided = 0;
+        for (int n = 0; n < SAMPLES; n += 1) {
+            Board board = randomPosition(random);
+            int stored = tables.probe(board);
+            int expected = solve(board, SEARCH_DEPTH);
+            if (stored != 0 && Tablebase.distance(stored) <= SEARCH_DEPTH) {
+                assertEquals(board.toString(), expected, stored);
+                decided += 1;
+            } else {
+                assertEquals(board.toString(), 0, expected);
+            }
+        }
+        assertTrue("no short results sampled", decided > 0);
+    }
+
+    /** Test that a search probing the tables finds the stored result. */
+    @Test
+    public void testProbeInSearch() throws IOException {
+        Tablebase tables = tables();
+        Board board = position(WP, "a6", "g6", "a1", "h6");
+        Searcher searcher =
+            new Searcher(new TranspositionTable(1), new WeightedEvaluator(),
+                         tables);
+        searcher.setPosition(board);
+        long now = System.currentTimeMillis();
+        searcher.setDeadlines(now + 2000, now + 4000);
+        searcher.search(1, false);
+        assertEquals("value", WINNING_VALUE - 5, searcher.bestValue());
+        board.makeMove(searcher.bestMove());
+        assertEquals("result after best move", -5, tables.probe(board));
+    }
+
+    /** Return the position with white pieces on WHITE0 and WHITE1, black
+     *  pieces on BLACK0 and BLACK1, and SIDE to move. */
+    private static Board position(Piece side, String white0, String white1,
+                                  String black0, String black1) {
+        Piece[][] contents = new Piece[8][8];
+        for (Piece[] row : contents) {
+            Arrays.fill(row, EMP);
+        }
+        for (String s : new String[] { white0, white1 }) {
+            contents[sq(s).row()][sq(s).col()] = WP;
+        }
+        for (String s : new String[] { black0, black1 }) {
+            contents[sq(s).row()][sq(s).col()] = BP;
+        }
+        return new Board(contents, side);
+    }
+
+    /** Return a random position, chosen using RANDOM, with two pieces a
+     *  side, that is not over. */
+    private static Board randomPosition(Random random) {
+        while (true) {
+            Piece[][] contents = new Piece[8][8];
+            for (Piece[] row : contents) {
+                Arrays.fill(row, EMP);
+            }
+            int placed = 0;
+            while (placed < 4) {
+                int k = random.nextInt(64);
+                if (contents[k / 8][k % 8] == EMP) {
+                    contents[k / 8][k % 8] = placed < 2 ? WP : BP;
+                    placed += 1;
+                }
+            }
+            Board board =
+                new Board(contents, random.nextBoolean() ? WP : BP);
+            if (!board.gameOver()) {
+                return board;
+            }
+        }
+    }
+
+    /** Return the result of BOARD for the side on move, found by full
+     *  search to DEPTH plies and encoded as for Tablebase.probe, or 0 if
+     *  neither side forces a win within DEPTH plies.  BOARD is
+     *  unchanged. */
+    private static int solve(Board board, int depth) {
+        Piece winner = board.winner();
+        if (winner != null) {
+            return winner == board.turn() ? 1 : -1;
+        }
+        if (depth == 0) {
+            return 0;
+        }
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = board.generateMoves(moves);
+        int win = 0, loss = n > 0 ? -1 : 0;
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(moves[i]);
+            int value = solve(board, depth - 1);
+            board.retract();
+            if (value < 0 && (win == 0 || 1 - value < win)) {
+                win = 1 - value;
+            } else if (value <= 0) {
+                loss = 0;
+            } else if (loss != 0) {
+                loss = Math.min(loss, -value - 1);
+            }
+        }
+        return win != 0 ? win : loss;
+    }
+
+    /** Return tables for two pieces a side, making them the first time
+     *  this is called. */
+    private static synchronized Tablebase tables() throws IOException {
+        if (_tables == null) {
+            File directory = Files.createTempDirectory("loatb").toFile();
+            directory.deleteOnExit();
+            Tablebase.generate(directory.getPath(), 2,
+                               Runtime.getRuntime().availableProcessors());
+            for (File file : directory.listFiles()) {
+                file.deleteOnExit();
+            }
+            _tables = new Tablebase(directory.getPath(), 2);
+        }
+        return _tables;
+    }
+
+    /** Number of positions tested by testShortResults. */
+    private static final int SAMPLES = 300;
+    /** Depth of the full searches in testShortResults. */
+    private static final int SEARCH_DEPTH = 3;
+
+    /** The tables for two pieces a side, once made. */
+    private static Tablebase _tables;
+
+}
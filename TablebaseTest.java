@@ -0,0 +1,32 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.HashSet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the Tablebase class that need no tables.  The results in
+ *  generated tables are tested by TablebaseResultsTest.
+ *  @author Devyanshi Agarwal
+ */
+public class TablebaseTest {
+
+    @Test
+    public void testIndex() {
+        HashSet<Integer> seen = new HashSet<>();
+        int size = Tablebase.size(2, 2);
+        for (long white = 0; white < 1 << 12; white += 1) {
+            for (long black = 0; black < 1 << 12; black += 1) {
+                if (Long.bitCount(white) == 2 && Long.bitCount(black) == 2
+                    && (white & black) == 0) {
+                    int index = Tablebase.index(white, black);
+                    assertTrue("index in range", index >= 0 && index < size);
+                    assertTrue("index unique", seen.add(index));
+                }
+            }
+        }
+    }
+
+}
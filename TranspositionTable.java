@@ -0,0 +1,164 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+/** A fixed-size table of search results, indexed by position key
+ *  (see Board.zobristKey).  Each entry records the depth to which a
+ *  position was searched, its score, whether that score is exact or only
+ *  a bound, and the best move found.
+ *
+ *  The table is allocated once, in two parallel arrays of longs, and
+ *  never grows.  Entries are grouped in buckets of two.  The first entry
+ *  of a bucket is depth-preferred: it is replaced only by a search at
+ *  least as deep or by any search once it is left over from an earlier
+ *  call to newSearch.  The second entry is always replaced, so that
+ *  recent shallow results are still kept.
+ *
+ *  The table may be shared by searches running in several threads
+ *  without locking.  Each entry's key is stored exclusive-ored with its
+ *  data, so that an entry torn by simultaneous stores, or by a read
+ *  racing a store, fails to match any key and is simply ignored.
+ *  @author Devyanshi Agarwal
+ */
+class TranspositionTable {
+
+    /** Bound type of a score that is the exact value of a position. */
+    static final int EXACT = 0;
+    /** Bound type of a score that is a lower bound on the value (the
+     *  search failed high). */
+    static final int LOWER = 1;
+    /** Bound type of a score that is an upper bound on the value (the
+     *  search failed low). */
+    static final int UPPER = 2;
+
+    /** Size in bytes of one entry. */
+    static final int ENTRY_SIZE = 2 * Long.BYTES;
+
+    /** A table occupying at most MEGABYTES megabytes (and at least one
+     *  bucket). */
+    TranspositionTable(int megabytes) {
+        long entries = ((long) megabytes << 20) / ENTRY_SIZE;
+        int size = 2;
+        while (size <= entries / 2 && size < (1 << 30)) {
+            size *= 2;
+        }
+        _keys = new long[size];
+        _data = new long[size];
+        _mask = size - 2;
+    }
+
+    /** Return the number of entries in this table. */
+    int size() {
+        return _keys.length;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_keys, 0);
+        Arrays.fill(_data, 0);
+        _generation = 0;
+    }
+
+    /** Indicate that a new search is starting.  Entries stored before
+     *  this call become candidates for replacement. */
+    void newSearch() {
+        _generation = (_generation + 1) & GENERATION_MASK;
+    }
+
+    /** Return the contents of the entry for the position with key KEY,
+     *  or 0 if there is none.  The result is decoded by depth, score,
+     *  bound, and move. */
+    long probe(long key) {
+        int bucket = (int) key & _mask;
+        for (int k = bucket; k < bucket + 2; k += 1) {
+            long data = _data[k];
+            if (data != 0 && (_keys[k] ^ data) == key) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /** Record that the position with key KEY was searched to DEPTH with
+     *  result SCORE of bound type BOUND (EXACT, LOWER, or UPPER), and that
+     *  the move with code MOVE (see Move.code) was the best move found.
+     *  MOVE is 0 if there was no best move. */
+    void store(long key, int depth, int score, int bound, int move) {
+        int bucket = (int) key & _mask;
+        long first = _data[bucket], second = _data[bucket + 1];
+        int k = bucket + 1;
+        long old = second;
+        if (first == 0 || (_keys[bucket] ^ first) == key
+            || generation(first) != _generation || depth >= depth(first)) {
+            k = bucket;
+            old = first;
+        }
+        if (move == 0 && old != 0 && (_keys[k] ^ old) == key) {
+            move = move(old);
+        }
+        long data = (score & SCORE_MASK)
+            | (long) move << MOVE_SHIFT
+            | (long) Math.max(0, Math.min(depth, DEPTH_MASK)) << DEPTH_SHIFT
+            | (long) bound << BOUND_SHIFT
+            | (long) _generation << GENERATION_SHIFT
+            | USED;
+        _keys[k] = key ^ data;
+        _data[k] = data;
+    }
+
+    /** Return the depth recorded in ENTRY, a result of probe. */
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Return the score recorded in ENTRY. */
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    /** Return the bound type (EXACT, LOWER, or UPPER) of score(ENTRY). */
+    static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & BOUND_MASK;
+    }
+
+    /** Return the code of the best move recorded in ENTRY, or 0 if
+     *  none. */
+    static int move(long entry) {
+        return (int) (entry >>> MOVE_SHIFT) & MOVE_MASK;
+    }
+
+    /** Return the value of newSearch's counter when ENTRY was stored. */
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+
+    /* Layout of a data word, from the least significant bit: score (32
+     * bits), move code (12), depth (8), bound type (2), generation (8),
+     * and a bit that is always set in a used entry. */
+
+    /** Mask for the score field. */
+    private static final long SCORE_MASK = 0xffffffffL;
+    /** Position and mask of the move field. */
+    private static final int MOVE_SHIFT = 32, MOVE_MASK = 0xfff;
+    /** Position and mask of the depth field. */
+    private static final int DEPTH_SHIFT = 44, DEPTH_MASK = 0xff;
+    /** Position and mask of the bound-type field. */
+    private static final int BOUND_SHIFT = 52, BOUND_MASK = 0x3;
+    /** Position and mask of the generation field. */
+    private static final int GENERATION_SHIFT = 54, GENERATION_MASK = 0xff;
+    /** Bit set in every used entry. */
+    private static final long USED = 1L << 62;
+
+    /** Position keys, by entry, each exclusive-ored with the entry's
+     *  data. */
+    private final long[] _keys;
+    /** Packed entry contents, by entry.  Zero for an unused entry. */
+    private final long[] _data;
+    /** Mask selecting the first entry of a bucket from a key. */
+    private final int _mask;
+    /** Counter incremented by newSearch. */
+    private int _generation;
+
+}
@@ -0,0 +1,76 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.TranspositionTable.*;
+
+/** Tests of the TranspositionTable class.  The tables have a single
+ *  bucket of two entries, so that every key competes for it.
+ *  @author Devyanshi Agarwal
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x123456789abcdefL;
+        assertEquals("empty table", 0, table.probe(key));
+        table.store(key, 7, -1234, UPPER, 0x5a5);
+        long entry = table.probe(key);
+        assertEquals("depth", 7, depth(entry));
+        assertEquals("score", -1234, score(entry));
+        assertEquals("bound", UPPER, bound(entry));
+        assertEquals("move", 0x5a5, move(entry));
+        table.store(key, 8, 99, EXACT, 0);
+        entry = table.probe(key);
+        assertEquals("new score", 99, score(entry));
+        assertEquals("move kept", 0x5a5, move(entry));
+        table.clear();
+        assertEquals("cleared", 0, table.probe(key));
+    }
+
+    /** Test that a key sharing the bucket of a stored entry, but not its
+     *  key, finds nothing. */
+    @Test
+    public void testKeyVerified() {
+        TranspositionTable table = new TranspositionTable(0);
+        assertEquals("size", 2, table.size());
+        table.store(KEY0, 3, 10, EXACT, 1);
+        assertEquals("other key", 0, table.probe(KEY1));
+        assertEquals("key differing in one bit", 0,
+                     table.probe(KEY0 ^ (1L << 40)));
+        assertNotEquals("stored key", 0, table.probe(KEY0));
+    }
+
+    /** Test that the first entry of a bucket keeps the deepest result of
+     *  the current search, while the second takes the latest. */
+    @Test
+    public void testReplacement() {
+        TranspositionTable table = new TranspositionTable(0);
+        table.store(KEY0, 5, 0, EXACT, 1);
+        table.store(KEY1, 2, 0, EXACT, 2);
+        assertEquals("deep entry", 5, depth(table.probe(KEY0)));
+        assertEquals("shallow entry", 2, depth(table.probe(KEY1)));
+        table.store(KEY2, 1, 0, EXACT, 3);
+        assertEquals("deep entry kept", 5, depth(table.probe(KEY0)));
+        assertEquals("shallow entry replaced", 0, table.probe(KEY1));
+        assertEquals("latest entry", 1, depth(table.probe(KEY2)));
+        table.store(KEY1, 6, 0, EXACT, 2);
+        assertEquals("deep entry replaced by deeper", 0, table.probe(KEY0));
+        assertEquals("deeper entry", 6, depth(table.probe(KEY1)));
+        table.newSearch();
+        table.store(KEY0, 1, 0, EXACT, 1);
+        assertEquals("old deep entry replaced", 0, table.probe(KEY1));
+        assertEquals("new entry", 1, depth(table.probe(KEY0)));
+    }
+
+    /** Distinct keys, all in the single bucket of a minimal table. */
+    private static final long
+        KEY0 = 0x1111111111111110L,
+        KEY1 = 0x2222222222222220L,
+        KEY2 = 0x3333333333333330L;
+
+}
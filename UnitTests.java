@@ -14,7 +14,17 @@ public class UnitTests {
     /** Run the JUnit tests in the loa package. */
     public static void main(String[] ignored) {
         textui.runClasses(loa.UnitTests.class);
+        textui.runClasses(AnalyzerTest.class);
         textui.runClasses(BoardTest.class);
+        textui.runClasses(GameTest.class);
+        textui.runClasses(MachinePlayerTest.class);
+        textui.runClasses(MoveOrdererTest.class);
+        textui.runClasses(OpeningBookTest.class);
+        textui.runClasses(ProofNumberSolverTest.class);
+        textui.runClasses(SearcherTest.class);
+        textui.runClasses(TablebaseTest.class);
+        textui.runClasses(TranspositionTableTest.class);
+        textui.runClasses(YoungBrothersSearcherTest.class);
     }
 
     /** A dummy test to avoid complaint. */
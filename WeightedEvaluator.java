@@ -0,0 +1,112 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+import static loa.Piece.*;
+import static loa.Square.*;
+
+/** An Evaluator that scores a position as a weighted sum of terms, each
+ *  of which is the difference between a feature measured for white and
+ *  the same feature measured for black.  The features are:
+ *  <ul>
+ *  <li> concentration: the sum of the squared distances of the pieces
+ *       from their centroid, beyond the least possible for that number
+ *       of pieces;
+ *  <li> regions: the number of separate groups of pieces;
+ *  <li> centralization: the sum of a piece-square table that favors
+ *       the center of the board;
+ *  <li> Euler number: computed from counts of 2x2 "quads" (see
+ *       Board.eulerNumber), an estimate of the number of groups;
+ *  <li> mobility: the number of legal moves.
+ *  </ul>
+ *  All but the last are read from running sums and counts that Board
+ *  keeps up to date as moves are made and retracted.
+ *  @author Devyanshi Agarwal
+ */
+class WeightedEvaluator implements Evaluator {
+
+    /** Default weight of the concentration term. */
+    static final int CONCENTRATION_WEIGHT = 2;
+    /** Default weight of the region-count term. */
+    static final int REGIONS_WEIGHT = 40;
+    /** Default weight of the centralization term. */
+    static final int CENTRALIZATION_WEIGHT = 2;
+    /** Default weight of the Euler-number term. */
+    static final int EULER_WEIGHT = 25;
+    /** Default weight of the mobility term. */
+    static final int MOBILITY_WEIGHT = 2;
+
+    /** An evaluator with the default weights. */
+    WeightedEvaluator() {
+        this(CONCENTRATION_WEIGHT, REGIONS_WEIGHT, CENTRALIZATION_WEIGHT,
+             EULER_WEIGHT, MOBILITY_WEIGHT);
+    }
+
+    /** An evaluator with weights CONCENTRATION, REGIONS, CENTRALIZATION,
+     *  EULER, and MOBILITY for its terms. */
+    WeightedEvaluator(int concentration, int regions, int centralization,
+                      int euler, int mobility) {
+        _concentration = concentration;
+        _regions = regions;
+        _centralization = centralization;
+        _euler = euler;
+        _mobility = mobility;
+    }
+
+    @Override
+    public int evaluate(Board board) {
+        return score(board, WP) - score(board, BP);
+    }
+
+    /** Return the weighted sum of the features of SIDE's pieces on
+     *  BOARD, larger being better for SIDE. */
+    private int score(Board board, Piece side) {
+        int n = board.pieceCount(side);
+        int spread = 0;
+        if (n > 0) {
+            int sumCol = board.sumCol(side), sumRow = board.sumRow(side);
+            spread = board.sumSquares(side)
+                - (sumCol * sumCol + sumRow * sumRow) / n
+                - MIN_SPREAD[Math.min(n, MIN_SPREAD.length - 1)];
+        }
+        return -_concentration * Math.max(0, spread)
+            - _regions * (board.numRegions(side) - 1)
+            + _centralization * board.centrality(side)
+            - _euler * (board.eulerNumber(side) - 1)
+            + _mobility * board.mobility(side);
+    }
+
+    /** MIN_SPREAD[N] is the least sum of squared distances from a square
+     *  center of N distinct squares (an underestimate of the least
+     *  possible spread of N pieces about their centroid). */
+    static final int[] MIN_SPREAD = new int[NUM_SQUARES + 1];
+
+    static {
+        int[] distances = new int[(2 * BOARD_SIZE - 1) * (2 * BOARD_SIZE - 1)];
+        int k = 0;
+        for (int dc = 1 - BOARD_SIZE; dc < BOARD_SIZE; dc += 1) {
+            for (int dr = 1 - BOARD_SIZE; dr < BOARD_SIZE; dr += 1) {
+                distances[k] = dc * dc + dr * dr;
+                k += 1;
+            }
+        }
+        Arrays.sort(distances);
+        for (int n = 1; n <= NUM_SQUARES; n += 1) {
+            MIN_SPREAD[n] = MIN_SPREAD[n - 1] + distances[n - 1];
+        }
+    }
+
+    /** The weight of the concentration term. */
+    private final int _concentration;
+    /** The weight of the region-count term. */
+    private final int _regions;
+    /** The weight of the centralization term. */
+    private final int _centralization;
+    /** The weight of the Euler-number term. */
+    private final int _euler;
+    /** The weight of the mobility term. */
+    private final int _mobility;
+
+}
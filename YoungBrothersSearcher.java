@@ -0,0 +1,396 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import static loa.Board.MAX_MOVES;
+import static loa.Searcher.*;
+import static loa.TranspositionTable.*;
+
+/** A parallel alpha-beta search that divides the tree among the workers
+ *  of a ForkJoinPool by the "Young Brothers Wait" rule.  At each node at
+ *  least SPLIT_DEPTH plies above the leaves, the eldest (first-ordered)
+ *  child is searched first, alone, so that the node has a good bound
+ *  before anything else is tried.  Only then are its younger brothers
+ *  forked as separate tasks, which idle workers steal.  A brother that
+ *  causes a cutoff cancels the others: a task whose node, or any of its
+ *  ancestors, has been cut off returns at once.  Nodes nearer the leaves
+ *  are searched serially by Searchers, which are pooled and reused.
+ *  Within one search, they keep their killer moves and history scores
+ *  from one iteration to the next; each search starts them afresh.
+ *
+ *  Unlike the threads of MachinePlayer's default search, the workers
+ *  here do not race through the same tree, so with a single worker the
+ *  search of a given position visits the same nodes every time.
+ *  @author Devyanshi Agarwal
+ */
+class YoungBrothersSearcher {
+
+    /** Least remaining depth at which the children of a node are searched
+     *  in parallel. */
+    static final int SPLIT_DEPTH = 4;
+
+    /** A searcher running in THREADS workers, recording its results in
+     *  TABLE, scoring positions with EVALUATOR, and taking the results of
+     *  positions with few pieces from TABLEBASE, unless it is null. */
+    YoungBrothersSearcher(int threads, TranspositionTable table,
+                          Evaluator evaluator, Tablebase tablebase) {
+        _pool = new ForkJoinPool(threads);
+        _table = table;
+        _evaluator = evaluator;
+        _tablebase = tablebase;
+    }
+
+    /** Search POSITION to successively greater depths until the time (as
+     *  from System.currentTimeMillis) passes DEADLINE, or until an
+     *  iteration ends after SOFTDEADLINE.  Return the move chosen by the
+     *  deepest iteration that finished, or null if none did. */
+    Move search(Board position, long softDeadline, long deadline) {
+        return search(position, MAX_DEPTH, softDeadline, deadline);
+    }
+
+    /** Search POSITION as for search(POSITION, SOFTDEADLINE, DEADLINE),
+     *  but to a depth of at most MAXDEPTH.  The pooled Searchers forget
+     *  their move ordering first, so that the search does not depend on
+     *  earlier ones except through the transposition table. */
+    Move search(Board position, int maxDepth, long softDeadline,
+                long deadline) {
+        Move best = null;
+        _bestValue = 0;
+        _nodes.reset();
+        _timeUp = false;
+        _deadline = deadline;
+        for (Searcher searcher : _all) {
+            searcher.clearOrdering();
+        }
+        for (int depth = 1; depth <= maxDepth; depth += 1) {
+            Board board = new Board();
+            board.copyFrom(position);
+            Node root = new Node(null, -INFTY, INFTY);
+            _pool.invoke(new NodeTask(board, 0, depth, root));
+            if (_timeUp || root.bestMove == 0) {
+                break;
+            }
+            best = Move.mv(root.bestMove);
+            _bestValue = root.bestScore;
+            Utils.debug(1, "depth %d: %s (%d) %d nodes", depth, best,
+                        root.bestScore, _nodes.sum());
+            if (isWin(root.bestScore)
+                || System.currentTimeMillis() > softDeadline) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /** Return the value, for the side on move, of the move returned by
+     *  the last call to search, or 0 if it returned null. */
+    int bestValue() {
+        return _bestValue;
+    }
+
+    /** Return the number of nodes visited by the last search. */
+    long nodes() {
+        return _nodes.sum();
+    }
+
+    /** Make the current search stop as soon as possible.  May be called
+     *  from any thread. */
+    void stop() {
+        _timeUp = true;
+        _deadline = 0;
+        for (Searcher searcher : _all) {
+            searcher.setDeadlines(0, 0);
+        }
+    }
+
+    /** Stop any search under way and end my worker threads.  I may not
+     *  be used afterwards. */
+    void shutdown() {
+        stop();
+        _pool.shutdownNow();
+    }
+
+    /** Return the value of BOARD, at PLY, for the side on move, searched
+     *  to DEPTH with the window (ALPHA, BETA), as for Searcher.findMove.
+     *  PARENT is the node whose child BOARD is (null at the root).  The
+     *  result is meaningless if aborted(PARENT) afterwards.  If NODE is
+     *  not null, it is used as BOARD's node and records the best move. */
+    private int search(Board board, int ply, int depth, int alpha,
+                       int beta, Node parent, Node node) {
+        if (ply > 0 && (depth < SPLIT_DEPTH || board.gameOver())) {
+            return searchSerially(board, ply, depth, alpha, beta);
+        }
+        _nodes.increment();
+        if (aborted(parent)) {
+            return 0;
+        }
+        if (System.currentTimeMillis() > _deadline) {
+            _timeUp = true;
+            return 0;
+        }
+        long key = board.zobristKey();
+        long entry = _table.probe(key);
+        int hashMove = 0;
+        if (entry != 0) {
+            hashMove = move(entry);
+            if (ply > 0 && depth(entry) >= depth) {
+                int score = fromTable(score(entry), ply);
+                int bound = bound(entry);
+                if (bound == EXACT || (bound == LOWER && score >= beta)
+                    || (bound == UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+        int[] moves = new int[MAX_MOVES];
+        int numMoves = order(board, moves, hashMove);
+        if (numMoves == 0) {
+            return searchSerially(board, ply, depth, alpha, beta);
+        }
+        if (node == null) {
+            node = new Node(parent, alpha, beta);
+        }
+
+        board.makeMove(moves[0]);
+        int score = -search(board, ply + 1, depth - 1, -beta, -alpha,
+                            node, null);
+        board.retract();
+        if (aborted(parent)) {
+            return 0;
+        }
+        node.update(score, moves[0]);
+
+        if (node.alpha < beta) {
+            ArrayList<BrotherTask> brothers = new ArrayList<>(numMoves);
+            for (int i = 1; i < numMoves; i += 1) {
+                Board child = new Board();
+                child.copyFrom(board);
+                child.makeMove(moves[i]);
+                brothers.add(new BrotherTask(child, ply + 1, depth - 1,
+                                             node, moves[i]));
+            }
+            ForkJoinTask.invokeAll(brothers);
+            if (aborted(parent)) {
+                return 0;
+            }
+        }
+
+        int bound;
+        if (node.bestScore >= beta) {
+            bound = LOWER;
+        } else if (node.bestScore <= alpha) {
+            bound = UPPER;
+        } else {
+            bound = EXACT;
+        }
+        _table.store(key, depth, toTable(node.bestScore, ply), bound,
+                     node.bestMove);
+        return node.bestScore;
+    }
+
+    /** Return the value of BOARD as for search(BOARD, PLY, DEPTH, ALPHA,
+     *  BETA, ...), using a Searcher in the current thread. */
+    private int searchSerially(Board board, int ply, int depth, int alpha,
+                               int beta) {
+        Searcher searcher = _idle.poll();
+        if (searcher == null) {
+            searcher = new Searcher(_table, _evaluator, _tablebase);
+            _all.add(searcher);
+        }
+        int value = searcher.searchSubtree(board, ply, depth, alpha, beta,
+                                           _deadline);
+        _nodes.add(searcher.nodes());
+        if (searcher.stopped()) {
+            _timeUp = true;
+        }
+        _idle.add(searcher);
+        return value;
+    }
+
+    /** Store the codes of the legal moves on BOARD in MOVES, with
+     *  HASHMOVE (if legal) first and captures next, and return their
+     *  number. */
+    private static int order(Board board, int[] moves, int hashMove) {
+        int n = board.generateMoves(moves);
+        int next = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (moves[i] == hashMove) {
+                moves[i] = moves[0];
+                moves[0] = hashMove;
+                next = 1;
+                break;
+            }
+        }
+        long occupied = board.occupied();
+        for (int i = next; i < n; i += 1) {
+            int move = moves[i];
+            if ((occupied & (1L << (move & 63))) != 0) {
+                moves[i] = moves[next];
+                moves[next] = move;
+                next += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Return true iff the search should abandon the children of PARENT:
+     *  because time has run out, or because PARENT or one of its
+     *  ancestors has been cut off. */
+    private boolean aborted(Node parent) {
+        if (_timeUp) {
+            return true;
+        }
+        for (Node p = parent; p != null; p = p.parent) {
+            if (p.cutoff) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The shared state of a node whose children are being searched in
+     *  parallel. */
+    private static class Node {
+
+        /** A node with window (ALPHA, BETA) that is a child of PARENT
+         *  (null at the root). */
+        Node(Node parent, int alpha, int beta) {
+            this.parent = parent;
+            this.alpha = alpha;
+            this.beta = beta;
+        }
+
+        /** Record that the child reached by the move with code MOVE has
+         *  value -SCORE. */
+        synchronized void update(int score, int move) {
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        cutoff = true;
+                    }
+                }
+            }
+        }
+
+        /** The parent of this node, or null if it is the root. */
+        private final Node parent;
+        /** The upper end of this node's window. */
+        private final int beta;
+        /** The lower end of this node's window, raised as better moves
+         *  are found. */
+        private volatile int alpha;
+        /** The best value found so far, and the code of its move. */
+        private volatile int bestScore = -INFTY, bestMove;
+        /** True once some child has produced a value of at least beta. */
+        private volatile boolean cutoff;
+    }
+
+    /** A task that searches from a node, as for search.  Tasks are never
+     *  serialized. */
+    @SuppressWarnings("serial")
+    private class NodeTask extends RecursiveAction {
+
+        /** A task that searches BOARD, the position at NODE, PLY plies
+         *  from the root, to DEPTH. */
+        NodeTask(Board board, int ply, int depth, Node node) {
+            _board = board;
+            _ply = ply;
+            _depth = depth;
+            _node = node;
+        }
+
+        @Override
+        protected void compute() {
+            search(_board, _ply, _depth, _node.alpha, _node.beta,
+                   _node.parent, _node);
+        }
+
+        /** The position to search. */
+        private final Board _board;
+        /** Distance of _board from the root, and depth to search it. */
+        private final int _ply, _depth;
+        /** The node searched. */
+        private final Node _node;
+    }
+
+    /** A task that searches one younger brother: a child of a node after
+     *  the eldest has been searched.  Tasks are never serialized. */
+    @SuppressWarnings("serial")
+    private class BrotherTask extends RecursiveAction {
+
+        /** A task that searches BOARD, PLY plies from the root, to
+         *  DEPTH, where BOARD results from the move with code MOVE at
+         *  PARENT. */
+        BrotherTask(Board board, int ply, int depth, Node parent,
+                    int move) {
+            _board = board;
+            _ply = ply;
+            _depth = depth;
+            _parent = parent;
+            _move = move;
+        }
+
+        /** Search my position with a null window at the parent's current
+         *  alpha, and again with the full window if it beats alpha. */
+        @Override
+        protected void compute() {
+            if (aborted(_parent)) {
+                return;
+            }
+            int alpha = _parent.alpha, beta = _parent.beta;
+            int score = -search(_board, _ply, _depth, -alpha - 1, -alpha,
+                                _parent, null);
+            if (score > alpha && score < beta && !aborted(_parent)) {
+                score = -search(_board, _ply, _depth, -beta, -alpha,
+                                _parent, null);
+            }
+            if (!aborted(_parent)) {
+                _parent.update(score, _move);
+            }
+        }
+
+        /** The position to search. */
+        private final Board _board;
+        /** Distance of _board from the root, and depth to search it. */
+        private final int _ply, _depth;
+        /** The node whose child _board is. */
+        private final Node _parent;
+        /** Code of the move from _parent to _board. */
+        private final int _move;
+    }
+
+    /** Runs the tasks of the search. */
+    private final ForkJoinPool _pool;
+    /** Shared by all parts of the search. */
+    private final TranspositionTable _table;
+    /** Scores non-final positions for the serial searches. */
+    private final Evaluator _evaluator;
+    /** Exact results of positions with few pieces, or null. */
+    private final Tablebase _tablebase;
+    /** All the Searchers I have created. */
+    private final ConcurrentLinkedQueue<Searcher> _all =
+        new ConcurrentLinkedQueue<>();
+    /** Searchers not currently in use. */
+    private final ConcurrentLinkedQueue<Searcher> _idle =
+        new ConcurrentLinkedQueue<>();
+    /** See bestValue. */
+    private int _bestValue;
+    /** Number of nodes visited by the current search. */
+    private final LongAdder _nodes = new LongAdder();
+    /** Time (as from System.currentTimeMillis) at which the current
+     *  iteration must stop. */
+    private volatile long _deadline;
+    /** True once the current search has run out of time. */
+    private volatile boolean _timeUp;
+
+}
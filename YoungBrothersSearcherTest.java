@@ -0,0 +1,84 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Piece.*;
+import static loa.Move.mv;
+import static loa.Searcher.WINNING_VALUE;
+
+/** Tests of the YoungBrothersSearcher class, with one worker, whose
+ *  searches should be reproducible.
+ *  @author Devyanshi Agarwal
+ */
+public class YoungBrothersSearcherTest {
+
+    /** Test that searches of the same position to the same depth choose
+     *  the same move with the same value after visiting the same number
+     *  of nodes: by new searchers, and by one searcher whose table is
+     *  cleared between searches. */
+    @Test
+    public void testReproducible() {
+        Board board = new Board();
+        YoungBrothersSearcher first = searcher(new TranspositionTable(1));
+        String expected = search(first, board, DEPTH);
+        first.shutdown();
+        YoungBrothersSearcher second = searcher(new TranspositionTable(1));
+        assertEquals("new searcher", expected, search(second, board, DEPTH));
+        second.shutdown();
+
+        TranspositionTable table = new TranspositionTable(1);
+        YoungBrothersSearcher reused = searcher(table);
+        assertEquals("first search", expected, search(reused, board, DEPTH));
+        table.clear();
+        assertEquals("second search", expected,
+                     search(reused, board, DEPTH));
+        reused.shutdown();
+    }
+
+    /** Test that the search finds the only winning move in a position,
+     *  as Searcher does. */
+    @Test
+    public void testMateInOne() {
+        Board board = new Board(ProofNumberSolverTest.WIN_IN_7, WP);
+        board.makeMove(mv("a7-d4"));
+        board.makeMove(mv("b1-d1"));
+        Searcher plain = new Searcher(new TranspositionTable(1),
+                                      new WeightedEvaluator());
+        plain.setPosition(board);
+        plain.setDeadlines(Long.MAX_VALUE, Long.MAX_VALUE);
+        plain.search(1, false);
+        YoungBrothersSearcher searcher =
+            searcher(new TranspositionTable(1));
+        Move move = searcher.search(board, DEPTH, Long.MAX_VALUE,
+                                    Long.MAX_VALUE);
+        searcher.shutdown();
+        assertEquals("move", mv("e7-c5"), move);
+        assertEquals("move of Searcher", plain.bestMove(), move);
+        assertEquals("value", WINNING_VALUE - 1, searcher.bestValue());
+    }
+
+    /** Return a searcher with one worker that uses TABLE. */
+    private static YoungBrothersSearcher searcher(TranspositionTable table) {
+        return new YoungBrothersSearcher(1, table, new WeightedEvaluator(),
+                                         null);
+    }
+
+    /** Return a description of the result of searching BOARD to DEPTH
+     *  with SEARCHER, with no time limit: its move, value, and number of
+     *  nodes visited. */
+    private static String search(YoungBrothersSearcher searcher,
+                                 Board board, int depth) {
+        Move move = searcher.search(board, depth, Long.MAX_VALUE,
+                                    Long.MAX_VALUE);
+        return String.format("%s (%d) %d nodes", move,
+                             searcher.bestValue(), searcher.nodes());
+    }
+
+    /** Depth of the searches, at which nodes near the root are split
+     *  among workers. */
+    private static final int DEPTH = YoungBrothersSearcher.SPLIT_DEPTH + 1;
+
+}